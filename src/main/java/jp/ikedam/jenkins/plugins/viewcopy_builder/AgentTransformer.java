@@ -0,0 +1,150 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.util.List;
+
+import org.w3c.dom.Document;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+
+/**
+ * Applies operations to the configuration XML of a view on the node the build runs on.
+ * 
+ * The document is sent as bytes, and operations are applied on the node
+ * with the workspace on the node.
+ * Only the resulting bytes and the log are sent back,
+ * so heavy operations do not load the master.
+ * 
+ * Operations must be serializable, and must not depend on Jenkins in
+ * {@link ViewcopyOperation#perform(Document, FilePath, EnvVars, PrintStream)}.
+ */
+public class AgentTransformer implements FilePath.FileCallable<AgentTransformer.Result>
+{
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * The result of operations applied on a node.
+     */
+    public static class Result implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private final byte[] xml;
+        
+        private final String log;
+        
+        public Result(byte[] xml, String log)
+        {
+            this.xml = xml;
+            this.log = log;
+        }
+        
+        /**
+         * Returns the transformed configuration XML.
+         * 
+         * @return the configuration XML. null if any operation failed.
+         */
+        public byte[] getXml()
+        {
+            return xml;
+        }
+        
+        /**
+         * Returns the output of operations.
+         * 
+         * @return the output of operations.
+         */
+        public String getLog()
+        {
+            return log;
+        }
+    }
+    
+    private final byte[] xml;
+    
+    private final List<ViewcopyOperation> operationList;
+    
+    private final EnvVars env;
+    
+    /**
+     * @param xml   the configuration XML to transform.
+     * @param operationList operations to apply. Must be all applicable to the view.
+     * @param env   variables used when copying.
+     */
+    public AgentTransformer(byte[] xml, List<ViewcopyOperation> operationList, EnvVars env)
+    {
+        this.xml = xml;
+        this.operationList = operationList;
+        this.env = env;
+    }
+    
+    /**
+     * Applies operations on the node.
+     * 
+     * @param f         the workspace on the node.
+     * @param channel
+     * @return          the transformed configuration XML and the output of operations.
+     * @throws IOException
+     * @throws InterruptedException
+     * @see hudson.FilePath.FileCallable#invoke(java.io.File, hudson.remoting.VirtualChannel)
+     */
+    public Result invoke(File f, VirtualChannel channel) throws IOException, InterruptedException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream logger = new PrintStream(out, true, "UTF-8");
+        FilePath workspace = new FilePath(f);
+        byte[] transformed = null;
+        try
+        {
+            Document doc = XmlToolkit.parse(xml);
+            for(ViewcopyOperation operation: operationList)
+            {
+                doc = operation.perform(doc, workspace, env, logger);
+                if(doc == null)
+                {
+                    break;
+                }
+            }
+            if(doc != null)
+            {
+                transformed = XmlToolkit.toBytes(doc);
+            }
+        }
+        catch(Exception e)
+        {
+            logger.println("Failed to apply operations on the node.");
+            e.printStackTrace(logger);
+        }
+        logger.flush();
+        return new Result(transformed, out.toString("UTF-8"));
+    }
+}
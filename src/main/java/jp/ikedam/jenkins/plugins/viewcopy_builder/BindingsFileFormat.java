@@ -0,0 +1,179 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Formats of files listing variable bindings, a row for each view to be copied to.
+ * 
+ * Rows are read one by one, so the whole file is never held in memory.
+ * A malformed row is reported with {@link MalformedRowException},
+ * and following rows can be still read.
+ */
+public enum BindingsFileFormat
+{
+    /**
+     * CSV file with a header line of variable names.
+     */
+    CSV
+    {
+        @Override
+        public String getDisplayName()
+        {
+            return Messages.BindingsFileFormat_CSV();
+        }
+        
+        @Override
+        public RowReader open(Reader reader) throws IOException
+        {
+            final CsvReader in = new CsvReader(reader);
+            final List<String> header = in.readRecord();
+            
+            return new RowReader()
+            {
+                @Override
+                public Map<String, String> next() throws IOException
+                {
+                    if(header == null)
+                    {
+                        return null;
+                    }
+                    List<String> record = in.readRecord();
+                    if(record == null)
+                    {
+                        return null;
+                    }
+                    if(record.size() != header.size())
+                    {
+                        throw new MalformedRowException(
+                                in.getRecordLineNumber(),
+                                String.format("%d columns are expected, but %d columns", header.size(), record.size())
+                        );
+                    }
+                    Map<String, String> row = new LinkedHashMap<String, String>();
+                    for(int i = 0; i < header.size(); ++i)
+                    {
+                        row.put(header.get(i), record.get(i));
+                    }
+                    return row;
+                }
+            };
+        }
+    },
+    /**
+     * JSON lines: a JSON object with scalar values in each line.
+     * 
+     * Lines are parsed one by one, so that a malformed line does not affect following lines.
+     */
+    JSON_LINES
+    {
+        @Override
+        public String getDisplayName()
+        {
+            return Messages.BindingsFileFormat_JSON_LINES();
+        }
+        
+        @Override
+        public RowReader open(Reader reader) throws IOException
+        {
+            final BufferedReader in = new BufferedReader(reader);
+            
+            return new RowReader()
+            {
+                private int lineNumber = 0;
+                
+                @Override
+                public Map<String, String> next() throws IOException
+                {
+                    for(String line = in.readLine(); line != null; line = in.readLine())
+                    {
+                        ++lineNumber;
+                        if(StringUtils.isBlank(StringUtils.strip(line, " \t\uFEFF")))
+                        {
+                            continue;
+                        }
+                        JsonReader json = new JsonReader(new StringReader(line));
+                        try
+                        {
+                            Map<String, String> row = json.readObject();
+                            int c = json.peekToken();
+                            if(c != -1)
+                            {
+                                throw json.unexpected(c);
+                            }
+                            return row;
+                        }
+                        catch(IOException e)
+                        {
+                            // only parse errors, as the line is already read.
+                            throw new MalformedRowException(lineNumber, e.getMessage());
+                        }
+                    }
+                    return null;
+                }
+            };
+        }
+    },
+    ;
+    
+    /**
+     * Reads rows one by one.
+     */
+    public static interface RowReader
+    {
+        /**
+         * Reads the next row.
+         * 
+         * @return the mapping of variable names to values. null if reached to the end.
+         * @throws MalformedRowException    the row is malformed. Following rows can be still read.
+         * @throws IOException  failed to read.
+         */
+        public Map<String, String> next() throws IOException;
+    }
+    
+    /**
+     * Returns the name displayed in the job configuration page.
+     * 
+     * @return the display name
+     */
+    public abstract String getDisplayName();
+    
+    /**
+     * Starts reading rows.
+     * 
+     * @param reader    the stream to read. Not closed in this method.
+     * @return          the reader of rows.
+     * @throws IOException  failed to read the header.
+     */
+    public abstract RowReader open(Reader reader) throws IOException;
+}
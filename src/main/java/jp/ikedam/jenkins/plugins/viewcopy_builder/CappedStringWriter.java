@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A writer to hold the beginning of written characters, up to the specified length.
+ * 
+ * Writing fails with an IOException when exceeding the length,
+ * so that the writing process can stop without generating the rest.
+ * Test {@link #isExceeded()} to tell that failure from others.
+ */
+public class CappedStringWriter extends Writer
+{
+    private final StringBuilder buffer = new StringBuilder();
+    
+    private final int maxLength;
+    
+    private boolean exceeded = false;
+    
+    /**
+     * Returns whether written characters exceeded the length.
+     * 
+     * @return whether written characters exceeded the length.
+     */
+    public boolean isExceeded()
+    {
+        return exceeded;
+    }
+    
+    /**
+     * constructor.
+     * 
+     * @param maxLength the maximum number of characters to hold.
+     */
+    public CappedStringWriter(int maxLength)
+    {
+        this.maxLength = maxLength;
+    }
+    
+    /**
+     * @param cbuf
+     * @param off
+     * @param len
+     * @throws IOException when exceeding the length.
+     * @see java.io.Writer#write(char[], int, int)
+     */
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException
+    {
+        int rest = maxLength - buffer.length();
+        if(len > rest)
+        {
+            buffer.append(cbuf, off, rest);
+            exceeded = true;
+            throw new IOException(String.format("Exceeded %d characters", maxLength));
+        }
+        buffer.append(cbuf, off, len);
+    }
+    
+    /**
+     * @see java.io.Writer#flush()
+     */
+    @Override
+    public void flush()
+    {
+    }
+    
+    /**
+     * @see java.io.Writer#close()
+     */
+    @Override
+    public void close()
+    {
+    }
+    
+    /**
+     * Returns the held characters.
+     * 
+     * @return the held characters.
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return buffer.toString();
+    }
+}
@@ -93,19 +93,46 @@ public class CopiedviewinfoAction implements Action, Serializable
         return this.toUrl;
     }
     
+    private boolean unchanged;
+    
+    /**
+     * Returns whether the view copied to was not written
+     * as it was already the same as the copy.
+     * 
+     * @return whether the view copied to was unchanged.
+     */
+    public boolean isUnchanged()
+    {
+        return this.unchanged;
+    }
+    
     /**
      * 
      * constructor.
      * 
      * @param fromView  view that was copied from.
      * @param toView    view that was copied to.
+     * @param unchanged whether toView was unchanged.
      */
-    public CopiedviewinfoAction(View fromView, View toView)
+    public CopiedviewinfoAction(View fromView, View toView, boolean unchanged)
     {
         this.fromViewName = fromView.getViewName();
         this.fromUrl = fromView.getUrl();
         this.toViewName = toView.getViewName();
         this.toUrl = toView.getUrl();
+        this.unchanged = unchanged;
+    }
+    
+    /**
+     * 
+     * constructor.
+     * 
+     * @param fromView  view that was copied from.
+     * @param toView    view that was copied to.
+     */
+    public CopiedviewinfoAction(View fromView, View toView)
+    {
+        this(fromView, toView, false);
     }
     
     /**
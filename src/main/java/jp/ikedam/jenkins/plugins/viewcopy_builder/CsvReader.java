@@ -0,0 +1,223 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads CSV records one by one from a stream.
+ * 
+ * Fields can be quoted with &quot;, and &quot; in quoted fields is written as &quot;&quot;.
+ * Quoted fields can contain commas and line breaks.
+ * Empty lines are ignored.
+ * A byte order mark at the start of the stream is ignored.
+ * 
+ * A quote not closed within {@link #DEFAULT_MAX_RECORD_LINES} lines
+ * or {@link #DEFAULT_MAX_RECORD_LENGTH} characters is considered malformed.
+ * The record is skipped, and reading continues from the line following
+ * the one where the limit is exceeded.
+ * Characters are never read again, so memory used does not depend on the size of the stream.
+ */
+public class CsvReader
+{
+    /**
+     * The maximum number of lines a record can span.
+     */
+    public static final int DEFAULT_MAX_RECORD_LINES = 100;
+    
+    /**
+     * The maximum number of characters in a record.
+     */
+    public static final int DEFAULT_MAX_RECORD_LENGTH = 64 * 1024;
+    
+    private final PushbackReader reader;
+    
+    private final int maxRecordLines;
+    
+    private final int maxRecordLength;
+    
+    private boolean started = false;
+    
+    private int lineNumber = 1;
+    
+    private int recordLineNumber = 0;
+    
+    /**
+     * @param reader    the stream to read. Not closed by this class.
+     */
+    public CsvReader(Reader reader)
+    {
+        this(reader, DEFAULT_MAX_RECORD_LINES, DEFAULT_MAX_RECORD_LENGTH);
+    }
+    
+    /**
+     * @param reader    the stream to read. Not closed by this class.
+     * @param maxRecordLines    the maximum number of lines a record can span.
+     * @param maxRecordLength   the maximum number of characters in a record.
+     */
+    public CsvReader(Reader reader, int maxRecordLines, int maxRecordLength)
+    {
+        this.reader = new PushbackReader(reader);
+        this.maxRecordLines = maxRecordLines;
+        this.maxRecordLength = maxRecordLength;
+    }
+    
+    /**
+     * Returns the line number where the last read record starts.
+     * 
+     * @return the line number, starting with 1.
+     */
+    public int getRecordLineNumber()
+    {
+        return recordLineNumber;
+    }
+    
+    /**
+     * Skips characters till the end of the current line.
+     * 
+     * @throws IOException
+     */
+    private void skipLine() throws IOException
+    {
+        int c;
+        do
+        {
+            c = reader.read();
+        } while(c != '\n' && c != -1);
+        if(c == '\n')
+        {
+            ++lineNumber;
+        }
+    }
+    
+    /**
+     * Reads the next record.
+     * 
+     * @return fields of the record. null if reached to the end of the stream.
+     * @throws MalformedRowException    a quote is not closed. Following records can be still read.
+     * @throws IOException  failed to read.
+     */
+    public List<String> readRecord() throws IOException
+    {
+        if(!started)
+        {
+            started = true;
+            int c = reader.read();
+            if(c != '\uFEFF' && c != -1)
+            {
+                reader.unread(c);
+            }
+        }
+        
+        List<String> record = new ArrayList<String>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int length = 0;
+        recordLineNumber = lineNumber;
+        
+        while(true)
+        {
+            int c = reader.read();
+            ++length;
+            if(quoted)
+            {
+                if(c == -1)
+                {
+                    throw new MalformedRowException(recordLineNumber, "Quote is not closed");
+                }
+                if(c == '"')
+                {
+                    int next = reader.read();
+                    if(next == '"')
+                    {
+                        ++length;
+                        field.append('"');
+                        continue;
+                    }
+                    quoted = false;
+                    if(next != -1)
+                    {
+                        reader.unread(next);
+                    }
+                    continue;
+                }
+                if(c == '\n')
+                {
+                    ++lineNumber;
+                    if(lineNumber - recordLineNumber >= maxRecordLines)
+                    {
+                        // resync at the line just started.
+                        throw new MalformedRowException(recordLineNumber, String.format("Quote is not closed in %d lines", maxRecordLines));
+                    }
+                }
+                else if(length > maxRecordLength)
+                {
+                    skipLine();
+                    throw new MalformedRowException(recordLineNumber, String.format("Quote is not closed in %d characters", maxRecordLength));
+                }
+                field.append((char)c);
+                continue;
+            }
+            
+            if(c == '"' && field.length() <= 0)
+            {
+                quoted = true;
+            }
+            else if(c == ',')
+            {
+                record.add(field.toString());
+                field.setLength(0);
+            }
+            else if(c == '\n' || c == -1)
+            {
+                record.add(field.toString());
+                field.setLength(0);
+                if(c == '\n')
+                {
+                    ++lineNumber;
+                }
+                if(record.size() > 1 || record.get(0).length() > 0)
+                {
+                    return record;
+                }
+                // empty line.
+                if(c == -1)
+                {
+                    return null;
+                }
+                record.clear();
+                length = 0;
+                recordLineNumber = lineNumber;
+            }
+            else if(c != '\r')
+            {
+                field.append((char)c);
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Formats of files defining strings to replace.
+ * 
+ * Files are read as a stream, and each entry is passed to
+ * {@link MultiStringReplacer} as soon as it is read,
+ * so the whole file is never held in memory.
+ */
+public enum DictionaryFormat
+{
+    /**
+     * Java properties file: keys are replaced with values.
+     */
+    PROPERTIES
+    {
+        @Override
+        public String getDisplayName()
+        {
+            return Messages.DictionaryFormat_PROPERTIES();
+        }
+        
+        @Override
+        public int read(Reader reader, final MultiStringReplacer replacer) throws IOException
+        {
+            final int[] count = new int[]{0};
+            // Properties#load calls put for each entry.
+            Properties entryReader = new Properties()
+            {
+                private static final long serialVersionUID = 6140651567203349377L;
+                
+                @Override
+                public synchronized Object put(Object key, Object value)
+                {
+                    ++count[0];
+                    try
+                    {
+                        addEntry(replacer, (String)key, (String)value, count[0]);
+                    }
+                    catch(IOException e)
+                    {
+                        // put cannot throw IOException.
+                        throw new IllegalArgumentException(e.getMessage(), e);
+                    }
+                    return null;
+                }
+            };
+            try
+            {
+                entryReader.load(reader);
+            }
+            catch(IllegalArgumentException e)
+            {
+                throw new IOException(e.getMessage(), e);
+            }
+            return count[0];
+        }
+    },
+    /**
+     * CSV file with 2 columns: the string to be replaced and the string to be replaced with.
+     * 
+     * Fields can be quoted with &quot;. Empty lines are ignored.
+     */
+    CSV
+    {
+        @Override
+        public String getDisplayName()
+        {
+            return Messages.DictionaryFormat_CSV();
+        }
+        
+        @Override
+        public int read(Reader reader, MultiStringReplacer replacer) throws IOException
+        {
+            CsvReader in = new CsvReader(reader);
+            int count = 0;
+            
+            for(List<String> record = in.readRecord(); record != null; record = in.readRecord())
+            {
+                if(record.size() != 2)
+                {
+                    throw new IOException(String.format(
+                            "Line %d: 2 columns are expected, but %d columns",
+                            in.getRecordLineNumber(),
+                            record.size()
+                    ));
+                }
+                ++count;
+                addEntry(replacer, record.get(0), record.get(1), in.getRecordLineNumber());
+            }
+            
+            return count;
+        }
+    },
+    /**
+     * JSON file with a single object: names are replaced with values.
+     * 
+     * All values must be strings.
+     */
+    JSON
+    {
+        @Override
+        public String getDisplayName()
+        {
+            return Messages.DictionaryFormat_JSON();
+        }
+        
+        @Override
+        public int read(Reader reader, MultiStringReplacer replacer) throws IOException
+        {
+            JsonReader in = new JsonReader(reader);
+            int count = 0;
+            
+            in.expect('{');
+            if(in.peekToken() == '}')
+            {
+                in.expect('}');
+            }
+            else
+            {
+                while(true)
+                {
+                    String key = in.readString();
+                    in.expect(':');
+                    String value = in.readString();
+                    ++count;
+                    addEntry(replacer, key, value, count);
+                    if(in.peekToken() == '}')
+                    {
+                        in.expect('}');
+                        break;
+                    }
+                    in.expect(',');
+                }
+            }
+            if(in.peekToken() != -1)
+            {
+                throw in.unexpected(in.peekToken());
+            }
+            
+            return count;
+        }
+    },
+    ;
+    
+    /**
+     * Returns the name displayed in the job configuration page.
+     * 
+     * @return the display name
+     */
+    public abstract String getDisplayName();
+    
+    /**
+     * Reads entries and adds them to the replacer.
+     * 
+     * @param reader    the stream to read. Not closed in this method.
+     * @param replacer  the replacer to add entries to.
+     * @return          the number of read entries.
+     * @throws IOException  when failed to read, or the file is malformed.
+     */
+    public abstract int read(Reader reader, MultiStringReplacer replacer) throws IOException;
+    
+    /**
+     * Adds an entry to the replacer.
+     * 
+     * @param replacer  the replacer to add entries to.
+     * @param fromStr   the string to be replaced.
+     * @param toStr     the string to be replaced with.
+     * @param position  the position of the entry, used in the error message.
+     * @throws IOException  fromStr is empty.
+     */
+    private static void addEntry(MultiStringReplacer replacer, String fromStr, String toStr, int position)
+        throws IOException
+    {
+        if(fromStr == null || fromStr.length() <= 0)
+        {
+            throw new IOException(String.format("Entry %d: the string to be replaced is empty", position));
+        }
+        replacer.add(fromStr, toStr);
+    }
+}
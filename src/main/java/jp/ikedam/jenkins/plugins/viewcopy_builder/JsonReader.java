@@ -0,0 +1,257 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads JSON tokens one by one from a stream.
+ * 
+ * Supports only objects and scalar values, which are enough for
+ * flat mappings of strings.
+ */
+public class JsonReader
+{
+    private final PushbackReader reader;
+    
+    private int offset = 0;
+    
+    /**
+     * @param reader    the stream to read. Not closed by this class.
+     */
+    public JsonReader(Reader reader)
+    {
+        this.reader = new PushbackReader(reader);
+    }
+    
+    private int read() throws IOException
+    {
+        int c = reader.read();
+        if(c != -1)
+        {
+            ++offset;
+        }
+        return c;
+    }
+    
+    /**
+     * Returns the next character other than white spaces, without consuming it.
+     * 
+     * @return the next character, or -1 for the end of the stream.
+     * @throws IOException
+     */
+    public int peekToken() throws IOException
+    {
+        int c = read();
+        while(c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '\uFEFF')
+        {
+            c = read();
+        }
+        if(c != -1)
+        {
+            reader.unread(c);
+            --offset;
+        }
+        return c;
+    }
+    
+    /**
+     * Consumes the next character other than white spaces.
+     * 
+     * @param expected  the expected character.
+     * @throws IOException  the next character is not the expected one.
+     */
+    public void expect(char expected) throws IOException
+    {
+        int c = peekToken();
+        if(c != expected)
+        {
+            throw unexpected(c);
+        }
+        read();
+    }
+    
+    /**
+     * Reads a string.
+     * 
+     * @return the string.
+     * @throws IOException  the next token is not a string.
+     */
+    public String readString() throws IOException
+    {
+        expect('"');
+        StringBuilder sb = new StringBuilder();
+        while(true)
+        {
+            int c = read();
+            if(c == -1)
+            {
+                throw unexpected(c);
+            }
+            if(c == '"')
+            {
+                return sb.toString();
+            }
+            if(c != '\\')
+            {
+                sb.append((char)c);
+                continue;
+            }
+            c = read();
+            switch(c)
+            {
+            case '"':
+            case '\\':
+            case '/':
+                sb.append((char)c);
+                break;
+            case 'b':
+                sb.append('\b');
+                break;
+            case 'f':
+                sb.append('\f');
+                break;
+            case 'n':
+                sb.append('\n');
+                break;
+            case 'r':
+                sb.append('\r');
+                break;
+            case 't':
+                sb.append('\t');
+                break;
+            case 'u':
+                {
+                    char[] hex = new char[4];
+                    for(int i = 0; i < hex.length; ++i)
+                    {
+                        int h = read();
+                        if(Character.digit(h, 16) < 0)
+                        {
+                            throw unexpected(h);
+                        }
+                        hex[i] = (char)h;
+                    }
+                    sb.append((char)Integer.parseInt(new String(hex), 16));
+                }
+                break;
+            default:
+                throw unexpected(c);
+            }
+        }
+    }
+    
+    /**
+     * Reads a scalar value: a string, a number, true, false or null.
+     * 
+     * @return the string representation of the value. null for null.
+     * @throws IOException  the next token is not a scalar value.
+     */
+    public String readScalar() throws IOException
+    {
+        int c = peekToken();
+        if(c == '"')
+        {
+            return readString();
+        }
+        if(c != '-' && c != '+' && c != '.' && !Character.isLetterOrDigit(c))
+        {
+            throw unexpected(c);
+        }
+        StringBuilder sb = new StringBuilder();
+        while(c == '-' || c == '+' || c == '.' || Character.isLetterOrDigit(c))
+        {
+            sb.append((char)read());
+            c = reader.read();
+            if(c != -1)
+            {
+                reader.unread(c);
+            }
+        }
+        String value = sb.toString();
+        if("null".equals(value))
+        {
+            return null;
+        }
+        if(!"true".equals(value) && !"false".equals(value) && !value.matches("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][-+]?[0-9]+)?"))
+        {
+            throw new IOException(String.format("Unexpected value '%s' at offset %d", value, offset - value.length()));
+        }
+        return value;
+    }
+    
+    /**
+     * Reads an object with scalar values.
+     * 
+     * Names with null values are not contained in the result.
+     * 
+     * @return the mapping of names to values.
+     * @throws IOException  the next token is not an object, or contains non-scalar values.
+     */
+    public Map<String, String> readObject() throws IOException
+    {
+        Map<String, String> object = new LinkedHashMap<String, String>();
+        expect('{');
+        if(peekToken() == '}')
+        {
+            expect('}');
+            return object;
+        }
+        while(true)
+        {
+            String name = readString();
+            expect(':');
+            String value = readScalar();
+            if(value != null)
+            {
+                object.put(name, value);
+            }
+            if(peekToken() == '}')
+            {
+                expect('}');
+                return object;
+            }
+            expect(',');
+        }
+    }
+    
+    /**
+     * Returns an exception for an unexpected character.
+     * 
+     * @param c the unexpected character, or -1 for the end of the stream.
+     * @return  an exception to throw.
+     */
+    public IOException unexpected(int c)
+    {
+        if(c == -1)
+        {
+            return new IOException("Unexpected end of JSON");
+        }
+        return new IOException(String.format("Unexpected character '%c' at offset %d", (char)c, offset));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A map holding at most the specified number of entries,
+ * discarding the least recently used entry.
+ * 
+ * Not thread-safe.
+ * Hold for each thread, or synchronize when accessing.
+ * 
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class LruCache<K, V> extends LinkedHashMap<K, V>
+{
+    private static final long serialVersionUID = -2716385464907131406L;
+    
+    private final int maxSize;
+    
+    /**
+     * Returns the maximum number of entries.
+     * 
+     * @return the maximum number of entries.
+     */
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+    
+    /**
+     * constructor.
+     * 
+     * @param maxSize the maximum number of entries.
+     */
+    public LruCache(int maxSize)
+    {
+        super(16, 0.75f, true);
+        this.maxSize = maxSize;
+    }
+    
+    /**
+     * Returns whether to remove the least recently used entry.
+     * 
+     * @param eldest the least recently used entry.
+     * @return true if the number of entries exceeds the maximum.
+     * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+     */
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+    {
+        return size() > getMaxSize();
+    }
+}
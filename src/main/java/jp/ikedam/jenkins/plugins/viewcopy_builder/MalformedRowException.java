@@ -0,0 +1,59 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a row in a file listing variable bindings is malformed.
+ * 
+ * Readers throwing this have already skipped the malformed row,
+ * so following rows can still be read.
+ */
+public class MalformedRowException extends IOException
+{
+    private static final long serialVersionUID = 1L;
+    
+    private final int lineNumber;
+    
+    /**
+     * @param lineNumber    the line number where the malformed row starts.
+     * @param message       what is wrong with the row.
+     */
+    public MalformedRowException(int lineNumber, String message)
+    {
+        super(String.format("Line %d: %s", lineNumber, message));
+        this.lineNumber = lineNumber;
+    }
+    
+    /**
+     * Returns the line number where the malformed row starts.
+     * 
+     * @return the line number, starting with 1.
+     */
+    public int getLineNumber()
+    {
+        return lineNumber;
+    }
+}
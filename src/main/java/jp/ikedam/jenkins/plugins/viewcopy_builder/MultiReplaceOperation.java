@@ -0,0 +1,216 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.w3c.dom.Document;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.model.Descriptor;
+
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Replace multiple strings in the configuration at once.
+ * 
+ * Works like multiple {@link ReplaceOperation}s,
+ * but scans the configuration only once.
+ * Strings are replaced simultaneously,
+ * so a replaced string is never replaced again with another pair.
+ */
+public class MultiReplaceOperation extends ViewcopyOperation
+{
+    private static final long serialVersionUID = -8020577185262718917L;
+    
+    /**
+     * The internal class to work with views.
+     * 
+     * The following files are used (put in main/resource directory in the source tree).
+     * <dl>
+     *     <dt>config.jelly</dt>
+     *         <dd>shown in the job configuration page, as an additional view to a Viewcopy build step.</dd>
+     * </dl>
+     */
+    @Extension
+    public static class DescriptorImpl extends Descriptor<ViewcopyOperation>
+    {
+        /**
+         * Returns the string to be shown in a job configuration page,
+         * in the dropdown of &quot;Add Copy Operation&quot;.
+         * 
+         * @return the display name
+         * @see hudson.model.Descriptor#getDisplayName()
+         */
+        @Override
+        public String getDisplayName()
+        {
+            return Messages.MultiReplaceOperation_DisplayName();
+        }
+    }
+    
+    private List<ReplaceEntry> replaceEntryList;
+    
+    /**
+     * Returns the pairs of strings to replace.
+     * 
+     * @return the pairs of strings to replace.
+     */
+    public List<ReplaceEntry> getReplaceEntryList()
+    {
+        return replaceEntryList;
+    }
+    
+    private boolean expandFromStr;
+    
+    /**
+     * Returns whether expand variables in strings to be replaced.
+     * 
+     * @return whether expand variables in strings to be replaced.
+     */
+    public boolean isExpandFromStr()
+    {
+        return expandFromStr;
+    }
+    
+    private boolean expandToStr;
+    
+    /**
+     * Returns whether expand variables in strings to be replaced with.
+     * 
+     * @return whether expand variables in strings to be replaced with.
+     */
+    public boolean isExpandToStr()
+    {
+        return expandToStr;
+    }
+    
+    /**
+     * Constructor to instantiate from parameters in the job configuration page.
+     * 
+     * When instantiating from the saved configuration,
+     * the object is directly serialized with XStream,
+     * and no constructor is used.
+     * 
+     * @param replaceEntryList  the pairs of strings to replace.
+     * @param expandFromStr     whether expand variables in strings to be replaced.
+     * @param expandToStr       whether expand variables in strings to be replaced with.
+     */
+    @DataBoundConstructor
+    public MultiReplaceOperation(List<ReplaceEntry> replaceEntryList, boolean expandFromStr, boolean expandToStr)
+    {
+        this.replaceEntryList = replaceEntryList;
+        this.expandFromStr = expandFromStr;
+        this.expandToStr = expandToStr;
+    }
+    
+    /**
+     * Returns modified XML Document of the view configuration.
+     * 
+     * Replace the strings in the view configuration: 
+     * only applied to strings in text nodes, so the XML structure is never destroyed. 
+     * 
+     * @param doc       XML Document of the view to be copied (a part of system config.xml)
+     * @param env       Variables defined in the build.
+     * @param logger    The output stream to log.
+     * @return          modified XML Document. Return null if an error occurs.
+     * @see jp.ikedam.jenkins.plugins.viewcopy_builder.ViewcopyOperation#perform(org.w3c.dom.Document, hudson.EnvVars, java.io.PrintStream)
+     */
+    @Override
+    public Document perform(Document doc, EnvVars env, PrintStream logger)
+    {
+        if(getReplaceEntryList() == null || getReplaceEntryList().isEmpty())
+        {
+            logger.println("No strings to replace are specified");
+            return null;
+        }
+        
+        MultiStringReplacer replacer = new MultiStringReplacer();
+        for(ReplaceEntry entry: getReplaceEntryList())
+        {
+            String fromStr = entry.getFromStr();
+            String toStr = entry.getToStr();
+            
+            if(StringUtils.isEmpty(fromStr))
+            {
+                logger.println("From String is empty");
+                return null;
+            }
+            if(toStr == null)
+            {
+                toStr = "";
+            }
+            String expandedFromStr = isExpandFromStr()?env.expand(fromStr):fromStr;
+            String expandedToStr = isExpandToStr()?env.expand(toStr):toStr;
+            if(StringUtils.isEmpty(expandedFromStr))
+            {
+                logger.println("From String got to be empty");
+                return null;
+            }
+            
+            logger.println("Replacing: " + expandedFromStr + " -> " + expandedToStr);
+            replacer.add(expandedFromStr, expandedToStr);
+        }
+        
+        try
+        {
+            int modified = replaceTextNodes(doc, replacer);
+            logger.println(String.format("Replaced %d strings in %d text nodes.", replacer.size(), modified));
+            
+            return doc;
+        }
+        catch(Exception e)
+        {
+            logger.print("Error occured in XML operation");
+            e.printStackTrace(logger);
+            return null;
+        }
+    }
+    
+    /**
+     * Returns the strings to replace, with variables expanded.
+     * 
+     * @param env       Variables defined in the build.
+     * @return          the key.
+     * @see jp.ikedam.jenkins.plugins.viewcopy_builder.ViewcopyOperation#getMemoKey(hudson.EnvVars)
+     */
+    @Override
+    public String getMemoKey(EnvVars env)
+    {
+        List<String> valueList = new ArrayList<String>();
+        if(getReplaceEntryList() != null)
+        {
+            for(ReplaceEntry entry: getReplaceEntryList())
+            {
+                valueList.add(isExpandFromStr()?env.expand(entry.getFromStr()):entry.getFromStr());
+                valueList.add(isExpandToStr()?env.expand(entry.getToStr()):entry.getToStr());
+            }
+        }
+        return joinMemoKey(valueList.toArray(new String[valueList.size()]));
+    }
+}
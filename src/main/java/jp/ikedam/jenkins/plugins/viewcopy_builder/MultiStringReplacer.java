@@ -0,0 +1,240 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Replaces multiple strings at once, scanning the text only once.
+ * 
+ * Uses Aho-Corasick automaton.
+ * Replacements are performed simultaneously:
+ * <ul>
+ *     <li>A replaced string is never replaced again with another pair.</li>
+ *     <li>When strings to replace overlap, the one starting first is replaced.
+ *         When they start at the same position, the longest one is replaced.</li>
+ * </ul>
+ * 
+ * Add all pairs before replacing.
+ * Once pairs are added, replacing can be performed from multiple threads.
+ */
+public class MultiStringReplacer
+{
+    /**
+     * A node of the trie of strings to replace.
+     */
+    private static class TrieNode
+    {
+        public final Map<Character, TrieNode> children = new HashMap<Character, TrieNode>();
+        
+        /**
+         * the length of the string from the root to this node.
+         */
+        public final int depth;
+        
+        /**
+         * the node for the longest proper suffix of this node.
+         */
+        public TrieNode failure = null;
+        
+        /**
+         * the nearest node in the failure chain where a string to replace ends.
+         */
+        public TrieNode output = null;
+        
+        /**
+         * non-null if a string to replace ends at this node.
+         */
+        public String replacement = null;
+        
+        public TrieNode(int depth)
+        {
+            this.depth = depth;
+        }
+    }
+    
+    private final TrieNode root = new TrieNode(0);
+    
+    private int size = 0;
+    
+    private boolean built = false;
+    
+    /**
+     * Returns the number of strings to replace.
+     * 
+     * @return the number of strings to replace.
+     */
+    public int size()
+    {
+        return size;
+    }
+    
+    /**
+     * Adds a pair of strings.
+     * 
+     * If the same string to replace is added twice, the latter one is used.
+     * 
+     * @param fromStr   the string to be replaced. cannot be empty.
+     * @param toStr     the string to be replaced with. null is treated as an empty string.
+     * @throws IllegalArgumentException fromStr is empty.
+     * @throws IllegalStateException    replacing is already performed.
+     */
+    public synchronized void add(String fromStr, String toStr)
+    {
+        if(fromStr == null || fromStr.length() <= 0)
+        {
+            throw new IllegalArgumentException("String to replace cannot be empty.");
+        }
+        if(built)
+        {
+            throw new IllegalStateException("Cannot add strings after replacing is performed.");
+        }
+        
+        TrieNode node = root;
+        for(int i = 0; i < fromStr.length(); ++i)
+        {
+            char c = fromStr.charAt(i);
+            TrieNode child = node.children.get(c);
+            if(child == null)
+            {
+                child = new TrieNode(node.depth + 1);
+                node.children.put(c, child);
+            }
+            node = child;
+        }
+        if(node.replacement == null)
+        {
+            ++size;
+        }
+        node.replacement = (toStr != null)?toStr:"";
+    }
+    
+    /**
+     * Builds failure links of the trie, if not built yet.
+     */
+    private synchronized void build()
+    {
+        if(built)
+        {
+            return;
+        }
+        
+        // breadth-first, as a failure link points to a shallower node.
+        Queue<TrieNode> queue = new LinkedList<TrieNode>();
+        queue.add(root);
+        while(!queue.isEmpty())
+        {
+            TrieNode node = queue.remove();
+            for(Map.Entry<Character, TrieNode> entry: node.children.entrySet())
+            {
+                char c = entry.getKey();
+                TrieNode child = entry.getValue();
+                
+                TrieNode failure = node.failure;
+                while(failure != null && !failure.children.containsKey(c))
+                {
+                    failure = failure.failure;
+                }
+                child.failure = (failure != null)?failure.children.get(c):root;
+                child.output = (child.failure.replacement != null)?child.failure:child.failure.output;
+                
+                queue.add(child);
+            }
+        }
+        built = true;
+    }
+    
+    /**
+     * Replaces all the added strings in the text.
+     * 
+     * @param text  the text to replace.
+     * @return      the replaced text. The same instance is returned if nothing is replaced.
+     */
+    public String replace(String text)
+    {
+        if(text == null || text.length() <= 0)
+        {
+            return text;
+        }
+        build();
+        if(size <= 0)
+        {
+            return text;
+        }
+        
+        // the longest string to replace starting at each position.
+        TrieNode[] matches = null;
+        TrieNode node = root;
+        for(int i = 0; i < text.length(); ++i)
+        {
+            char c = text.charAt(i);
+            TrieNode next = node.children.get(c);
+            while(next == null && node != root)
+            {
+                node = node.failure;
+                next = node.children.get(c);
+            }
+            node = (next != null)?next:root;
+            
+            for(
+                    TrieNode matched = (node.replacement != null)?node:node.output;
+                    matched != null;
+                    matched = matched.output
+            )
+            {
+                if(matches == null)
+                {
+                    matches = new TrieNode[text.length()];
+                }
+                // a string found later is longer than one found before at the same position.
+                matches[i + 1 - matched.depth] = matched;
+            }
+        }
+        
+        if(matches == null)
+        {
+            return text;
+        }
+        
+        StringBuilder sb = new StringBuilder(text.length());
+        int pos = 0;
+        while(pos < text.length())
+        {
+            if(matches[pos] != null)
+            {
+                sb.append(matches[pos].replacement);
+                pos += matches[pos].depth;
+            }
+            else
+            {
+                sb.append(text.charAt(pos));
+                ++pos;
+            }
+        }
+        return sb.toString();
+    }
+}
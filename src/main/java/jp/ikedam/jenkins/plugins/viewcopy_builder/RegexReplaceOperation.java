@@ -0,0 +1,279 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.io.PrintStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+/**
+ * Replace strings matching a regular expression in the configuration.
+ * 
+ * The replacement can refer to captured groups with $n.
+ */
+public class RegexReplaceOperation extends ViewcopyOperation
+{
+    private static final long serialVersionUID = -3129486203764283610L;
+    
+    /**
+     * The internal class to work with views.
+     * 
+     * The following files are used (put in main/resource directory in the source tree).
+     * <dl>
+     *     <dt>config.jelly</dt>
+     *         <dd>shown in the job configuration page, as an additional view to a Viewcopy build step.</dd>
+     * </dl>
+     */
+    @Extension
+    public static class DescriptorImpl extends Descriptor<ViewcopyOperation>
+    {
+        /**
+         * Returns the string to be shown in a job configuration page,
+         * in the dropdown of &quot;Add Copy Operation&quot;.
+         * 
+         * @return the display name
+         * @see hudson.model.Descriptor#getDisplayName()
+         */
+        @Override
+        public String getDisplayName()
+        {
+            return Messages.RegexReplaceOperation_DisplayName();
+        }
+        
+        /**
+         * Validate the value input to "Regular Expression"
+         * 
+         * @param regex
+         * @param expandRegex
+         * @return FormValidation object.
+         */
+        public FormValidation doCheckRegex(@QueryParameter String regex, @QueryParameter boolean expandRegex)
+        {
+            if(StringUtils.isEmpty(regex))
+            {
+                return FormValidation.error(Messages.RegexReplaceOperation_regex_empty());
+            }
+            
+            if(expandRegex && regex.contains("$"))
+            {
+                // If variable is used, skip the validation.
+                return FormValidation.ok();
+            }
+            
+            try {
+                Pattern.compile(regex);
+            } catch (PatternSyntaxException e) {
+                return FormValidation.error(Messages.RegexReplaceOperation_regex_invalid(e.getMessage()));
+            }
+            
+            return FormValidation.ok();
+        }
+    }
+    
+    private String regex;
+    
+    /**
+     * Returns the regular expression to match strings to be replaced.
+     * 
+     * @return the regular expression.
+     */
+    public String getRegex()
+    {
+        return regex;
+    }
+    
+    private boolean expandRegex;
+    
+    /**
+     * Returns whether expand variables in regex.
+     * 
+     * @return whether expand variables in regex.
+     */
+    public boolean isExpandRegex()
+    {
+        return expandRegex;
+    }
+    
+    private String replacement;
+    
+    /**
+     * Returns the string to be replaced with. $n refers to the captured group.
+     * 
+     * @return the string to be replaced with.
+     */
+    public String getReplacement()
+    {
+        return replacement;
+    }
+    
+    private boolean expandReplacement;
+    
+    /**
+     * Returns whether expand variables in replacement.
+     * 
+     * Variables are expanded before captured groups are referred,
+     * so $n is left as it is.
+     * 
+     * @return whether expand variables in replacement.
+     */
+    public boolean isExpandReplacement()
+    {
+        return expandReplacement;
+    }
+    
+    /**
+     * Constructor to instantiate from parameters in the job configuration page.
+     * 
+     * When instantiating from the saved configuration,
+     * the object is directly serialized with XStream,
+     * and no constructor is used.
+     * 
+     * @param regex             the regular expression to match strings to be replaced.
+     * @param expandRegex       whether expand variables in regex.
+     * @param replacement       the string to be replaced with.
+     * @param expandReplacement whether expand variables in replacement.
+     */
+    @DataBoundConstructor
+    public RegexReplaceOperation(String regex, boolean expandRegex, String replacement, boolean expandReplacement)
+    {
+        this.regex = regex;
+        this.expandRegex = expandRegex;
+        this.replacement = replacement;
+        this.expandReplacement = expandReplacement;
+    }
+    
+    /**
+     * Returns modified XML Document of the view configuration.
+     * 
+     * Replace the strings matching the regular expression in the view configuration: 
+     * only applied to strings in text nodes, so the XML structure is never destroyed. 
+     * 
+     * @param doc       XML Document of the view to be copied (a part of system config.xml)
+     * @param env       Variables defined in the build.
+     * @param logger    The output stream to log.
+     * @return          modified XML Document. Return null if an error occurs.
+     * @see jp.ikedam.jenkins.plugins.viewcopy_builder.ViewcopyOperation#perform(org.w3c.dom.Document, hudson.EnvVars, java.io.PrintStream)
+     */
+    @Override
+    public Document perform(Document doc, EnvVars env, PrintStream logger)
+    {
+        if(StringUtils.isEmpty(getRegex()))
+        {
+            logger.println("Regular expression is not specified.");
+            return null;
+        }
+        String expandedRegex = isExpandRegex()?env.expand(getRegex()):getRegex();
+        if(StringUtils.isEmpty(expandedRegex))
+        {
+            logger.println("Regular expression got to empty.");
+            return null;
+        }
+        String expandedReplacement = (getReplacement() != null)?getReplacement():"";
+        if(isExpandReplacement())
+        {
+            expandedReplacement = env.expand(expandedReplacement);
+        }
+        
+        Pattern pattern;
+        try
+        {
+            pattern = getPattern(expandedRegex);
+        }
+        catch(PatternSyntaxException e)
+        {
+            e.printStackTrace(logger);
+            return null;
+        }
+        
+        logger.println("Replacing: " + expandedRegex + " -> " + expandedReplacement);
+        try
+        {
+            // Retrieve all text nodes.
+            NodeList textNodeList = getNodeList(doc, "//text()");
+            
+            // The matcher is reused for all text nodes.
+            Matcher matcher = pattern.matcher("");
+            int modified = 0;
+            
+            // NodeList does not implement Collection, and foreach is not usable.
+            for(int i = 0; i < textNodeList.getLength(); ++i)
+            {
+                Node node = textNodeList.item(i);
+                matcher.reset(node.getNodeValue());
+                if(!matcher.find())
+                {
+                    continue;
+                }
+                StringBuffer sb = new StringBuffer();
+                do
+                {
+                    matcher.appendReplacement(sb, expandedReplacement);
+                }
+                while(matcher.find());
+                matcher.appendTail(sb);
+                node.setNodeValue(sb.toString());
+                ++modified;
+            }
+            logger.println(String.format("Replaced strings in %d text nodes.", modified));
+            
+            return doc;
+        }
+        catch(Exception e)
+        {
+            logger.print("Error occured in XML operation");
+            e.printStackTrace(logger);
+            return null;
+        }
+    }
+    
+    /**
+     * Returns the regular expression and the replacement, with variables expanded.
+     * 
+     * @param env       Variables defined in the build.
+     * @return          the key.
+     * @see jp.ikedam.jenkins.plugins.viewcopy_builder.ViewcopyOperation#getMemoKey(hudson.EnvVars)
+     */
+    @Override
+    public String getMemoKey(EnvVars env)
+    {
+        return joinMemoKey(
+                isExpandRegex()?env.expand(getRegex()):getRegex(),
+                isExpandReplacement()?env.expand(getReplacement()):getReplacement()
+        );
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.io.Serializable;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * A pair of strings to replace, used in {@link MultiReplaceOperation}.
+ */
+public class ReplaceEntry implements Serializable
+{
+    private static final long serialVersionUID = -4517620372542787645L;
+    
+    private String fromStr;
+    
+    /**
+     * Returns the string to be replaced.
+     * 
+     * @return the string to be replaced.
+     */
+    public String getFromStr()
+    {
+        return fromStr;
+    }
+    
+    private String toStr;
+    
+    /**
+     * Returns the string to be replaced with.
+     * 
+     * @return the string to be replaced with.
+     */
+    public String getToStr()
+    {
+        return toStr;
+    }
+    
+    /**
+     * Constructor to instantiate from parameters in the job configuration page.
+     * 
+     * @param fromStr   the string to be replaced.
+     * @param toStr     the string to be replaced with.
+     */
+    @DataBoundConstructor
+    public ReplaceEntry(String fromStr, String toStr)
+    {
+        this.fromStr = fromStr;
+        this.toStr = toStr;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+
+import org.w3c.dom.Document;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+/**
+ * Replace strings in the configuration, with pairs of strings read from a file in the workspace.
+ * 
+ * The file is read as a stream,
+ * and all strings are replaced while scanning the configuration only once,
+ * just like {@link MultiReplaceOperation}.
+ */
+public class ReplaceFromFileOperation extends ViewcopyOperation
+{
+    private static final long serialVersionUID = 2973306405571180262L;
+    
+    /**
+     * The encoding used when not specified.
+     */
+    private static final String DEFAULT_ENCODING = "UTF-8";
+    
+    /**
+     * The internal class to work with views.
+     * 
+     * The following files are used (put in main/resource directory in the source tree).
+     * <dl>
+     *     <dt>config.jelly</dt>
+     *         <dd>shown in the job configuration page, as an additional view to a Viewcopy build step.</dd>
+     * </dl>
+     */
+    @Extension
+    public static class DescriptorImpl extends Descriptor<ViewcopyOperation>
+    {
+        /**
+         * Returns the string to be shown in a job configuration page,
+         * in the dropdown of &quot;Add Copy Operation&quot;.
+         * 
+         * @return the display name
+         * @see hudson.model.Descriptor#getDisplayName()
+         */
+        @Override
+        public String getDisplayName()
+        {
+            return Messages.ReplaceFromFileOperation_DisplayName();
+        }
+        
+        /**
+         * Returns the choices of the format of the file.
+         * 
+         * @return the choices of DictionaryFormat
+         */
+        public ListBoxModel doFillFormatItems()
+        {
+            ListBoxModel ret = new ListBoxModel();
+            for(DictionaryFormat format: DictionaryFormat.values())
+            {
+                ret.add(format.getDisplayName(), format.name());
+            }
+            return ret;
+        }
+        
+        /**
+         * Validate the value input to "File Path"
+         * 
+         * @param filePath
+         * @return FormValidation object.
+         */
+        public FormValidation doCheckFilePath(@QueryParameter String filePath)
+        {
+            if(StringUtils.isBlank(filePath))
+            {
+                return FormValidation.error(Messages.ReplaceFromFileOperation_filePath_empty());
+            }
+            
+            return FormValidation.ok();
+        }
+    }
+    
+    private String filePath;
+    
+    /**
+     * Returns the path of the file, relative to the workspace.
+     * 
+     * @return the path of the file.
+     */
+    public String getFilePath()
+    {
+        return filePath;
+    }
+    
+    private DictionaryFormat format;
+    
+    /**
+     * Returns the format of the file.
+     * 
+     * @return the format of the file.
+     */
+    public DictionaryFormat getFormat()
+    {
+        return (format != null)?format:DictionaryFormat.PROPERTIES;
+    }
+    
+    private String encoding;
+    
+    /**
+     * Returns the encoding of the file.
+     * 
+     * @return the encoding of the file. UTF-8 if not specified.
+     */
+    public String getEncoding()
+    {
+        return encoding;
+    }
+    
+    /**
+     * Constructor to instantiate from parameters in the job configuration page.
+     * 
+     * When instantiating from the saved configuration,
+     * the object is directly serialized with XStream,
+     * and no constructor is used.
+     * 
+     * @param filePath  the path of the file, relative to the workspace. Variables are expanded.
+     * @param format    the format of the file.
+     * @param encoding  the encoding of the file.
+     */
+    @DataBoundConstructor
+    public ReplaceFromFileOperation(String filePath, DictionaryFormat format, String encoding)
+    {
+        this.filePath = StringUtils.trim(filePath);
+        this.format = format;
+        this.encoding = StringUtils.trim(encoding);
+    }
+    
+    /**
+     * Always fails, as the workspace is required.
+     * 
+     * @param doc       XML Document of the view to be copied (a part of system config.xml)
+     * @param env       Variables defined in the build.
+     * @param logger    The output stream to log.
+     * @return          null
+     * @see jp.ikedam.jenkins.plugins.viewcopy_builder.ViewcopyOperation#perform(org.w3c.dom.Document, hudson.EnvVars, java.io.PrintStream)
+     */
+    @Override
+    public Document perform(Document doc, EnvVars env, PrintStream logger)
+    {
+        return perform(doc, null, env, logger);
+    }
+    
+    /**
+     * Returns modified XML Document of the view configuration.
+     * 
+     * Replace the strings in the view configuration
+     * with pairs of strings read from the file: 
+     * only applied to strings in text nodes, so the XML structure is never destroyed. 
+     * 
+     * @param doc       XML Document of the view to be copied (a part of system config.xml)
+     * @param workspace the workspace of the build.
+     * @param env       Variables defined in the build.
+     * @param logger    The output stream to log.
+     * @return          modified XML Document. Return null if an error occurs.
+     * @see jp.ikedam.jenkins.plugins.viewcopy_builder.ViewcopyOperation#perform(org.w3c.dom.Document, hudson.FilePath, hudson.EnvVars, java.io.PrintStream)
+     */
+    @Override
+    public Document perform(Document doc, FilePath workspace, EnvVars env, PrintStream logger)
+    {
+        if(StringUtils.isBlank(getFilePath()))
+        {
+            logger.println("File Path is not specified");
+            return null;
+        }
+        if(workspace == null)
+        {
+            logger.println("Workspace is not available");
+            return null;
+        }
+        
+        String expandedFilePath = StringUtils.trim(env.expand(getFilePath()));
+        if(StringUtils.isBlank(expandedFilePath))
+        {
+            logger.println("File Path got to a blank");
+            return null;
+        }
+        String charset = StringUtils.isBlank(getEncoding())?DEFAULT_ENCODING:getEncoding();
+        
+        try
+        {
+            FilePath file = workspace.child(expandedFilePath);
+            if(!file.exists())
+            {
+                logger.println(String.format("File is not found: %s", expandedFilePath));
+                return null;
+            }
+            
+            logger.println(String.format("Reading strings to replace from %s", expandedFilePath));
+            MultiStringReplacer replacer = new MultiStringReplacer();
+            int entries;
+            InputStream in = file.read();
+            try
+            {
+                Reader reader = new InputStreamReader(in, charset);
+                entries = getFormat().read(reader, replacer);
+            }
+            finally
+            {
+                in.close();
+            }
+            logger.println(String.format("Read %d entries (%d strings to replace)", entries, replacer.size()));
+            
+            int modified = replaceTextNodes(doc, replacer);
+            logger.println(String.format("Replaced strings in %d text nodes.", modified));
+            
+            return doc;
+        }
+        catch(Exception e)
+        {
+            logger.print(String.format("Error occured in reading %s", expandedFilePath));
+            e.printStackTrace(logger);
+            return null;
+        }
+    }
+}
@@ -237,5 +237,20 @@ public class ReplaceOperation extends ViewcopyOperation
             return null;
         }
     }
+    
+    /**
+     * Returns the strings to replace, with variables expanded.
+     * 
+     * @param env       Variables defined in the build.
+     * @return          the key.
+     * @see jp.ikedam.jenkins.plugins.viewcopy_builder.ViewcopyOperation#getMemoKey(hudson.EnvVars)
+     */
+    @Override
+    public String getMemoKey(EnvVars env)
+    {
+        return joinMemoKey(
+                isExpandFromStr()?env.expand(getFromStr()):getFromStr(),
+                isExpandToStr()?env.expand(getToStr()):getToStr()
+        );
+    }
 }
-
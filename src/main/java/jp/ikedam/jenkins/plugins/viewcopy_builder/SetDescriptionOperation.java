@@ -124,4 +124,17 @@ public class SetDescriptionOperation extends ViewcopyOperation
         
         return doc;
     }
+    
+    /**
+     * Returns the description to set, with variables expanded.
+     * 
+     * @param env
+     * @return
+     * @see jp.ikedam.jenkins.plugins.viewcopy_builder.ViewcopyOperation#getMemoKey(hudson.EnvVars)
+     */
+    @Override
+    public String getMemoKey(EnvVars env)
+    {
+        return joinMemoKey(env.expand(getDescription()));
+    }
 }
@@ -149,7 +149,7 @@ public class SetRegexOperation extends ViewcopyOperation
         
         try
         {
-            Pattern.compile(expandedRegex);
+            getPattern(expandedRegex);
         }
         catch(PatternSyntaxException e)
         {
@@ -194,4 +194,17 @@ public class SetRegexOperation extends ViewcopyOperation
     {
         return ListView.class.isAssignableFrom(viewType);
     }
+    
+    /**
+     * Returns the regular expression to set, with variables expanded.
+     * 
+     * @param env
+     * @return
+     * @see jp.ikedam.jenkins.plugins.viewcopy_builder.ViewcopyOperation#getMemoKey(hudson.EnvVars)
+     */
+    @Override
+    public String getMemoKey(EnvVars env)
+    {
+        return joinMemoKey(env.expand(getRegex()));
+    }
 }
@@ -0,0 +1,432 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jenkins.model.Jenkins;
+
+import org.apache.commons.lang.StringUtils;
+
+import hudson.model.AllView;
+import hudson.model.View;
+import hudson.model.ViewGroup;
+import hudson.views.ViewsTabBar;
+
+/**
+ * Index of views in Jenkins, to look up views without scanning all views.
+ * 
+ * {@link Jenkins#getView(String)} scans views linearly,
+ * which is slow with many views and called many times
+ * when copying to many views or validating forms.
+ * 
+ * Views are indexed with their paths:
+ * the name for views in Jenkins,
+ * and names joined with &quot;/&quot; for views in view groups
+ * (e.g. &quot;team/release/nightly&quot;).
+ * All views are indexed in a single walk,
+ * building paths from the paths of their view groups,
+ * so a nested view is looked up without walking its view groups.
+ * The index is rebuilt when views are saved by others than this plugin
+ * (see {@link ViewSaveTracker}), when Jenkins is started,
+ * and when the configuration is reloaded from the disk.
+ * Each of them bumps the generation of the index,
+ * so a lookup only compares numbers and references to tell whether the index is current.
+ * Reloading replaces all views without saving them nor firing any event.
+ * It replaces the views tab bar of Jenkins together,
+ * which is compared without scanning views
+ * (unlike {@link Jenkins#getPrimaryView()}).
+ * 
+ * Paths are also held sorted, to list candidates for autocompletion
+ * without sorting all paths for each request.
+ */
+public class ViewIndex
+{
+    /**
+     * The separator of names in a path.
+     * 
+     * Cannot be contained in view names.
+     */
+    public static final String SEPARATOR = "/";
+    
+    /**
+     * Views in a Jenkins instance, keyed by their paths.
+     */
+    private static class Index
+    {
+        public final long generation;
+        
+        public final Jenkins jenkins;
+        
+        /**
+         * The views tab bar of {@link #jenkins} when built.
+         */
+        public final ViewsTabBar viewsTabBar;
+        
+        /**
+         * The primary view of {@link #jenkins} when built.
+         */
+        public final View primaryView;
+        
+        /**
+         * Modified only with the lock of {@link ViewIndex}.
+         */
+        public final ConcurrentHashMap<String, View> views = new ConcurrentHashMap<String, View>();
+        
+        public Index(long generation, Jenkins jenkins)
+        {
+            this.generation = generation;
+            this.jenkins = jenkins;
+            this.viewsTabBar = jenkins.getViewsTabBar();
+            this.primaryView = jenkins.getPrimaryView();
+        }
+        
+        /**
+         * Returns whether views in Jenkins are the ones indexed.
+         * 
+         * @param generation    the current generation.
+         * @param jenkins   the current Jenkins instance.
+         * @return  false if views are saved by others, Jenkins is restarted, or the configuration is reloaded.
+         */
+        public boolean isCurrent(long generation, Jenkins jenkins)
+        {
+            return this.generation == generation
+                    && this.jenkins == jenkins
+                    && viewsTabBar == jenkins.getViewsTabBar();
+        }
+    }
+    
+    /**
+     * The generation of the index. Bumped to rebuild the index.
+     * 
+     * Modified only with the lock of this class.
+     */
+    private static volatile long generation = 0;
+    
+    /**
+     * The index. null if not built yet.
+     * 
+     * Replaced when rebuilt, with the lock of this class.
+     */
+    private static volatile Index index = null;
+    
+    /**
+     * Paths of views to choose from, sorted ignoring case.
+     */
+    private static class SortedPaths
+    {
+        /**
+         * The index these paths are built from.
+         */
+        public final Index index;
+        
+        public final String[] paths;
+        
+        /**
+         * Paths in lower case, in the same order as {@link #paths}.
+         */
+        public final String[] lowerPaths;
+        
+        public SortedPaths(Index index, String[] paths)
+        {
+            this.index = index;
+            Arrays.sort(paths, String.CASE_INSENSITIVE_ORDER);
+            this.paths = paths;
+            this.lowerPaths = new String[paths.length];
+            for(int i = 0; i < paths.length; ++i)
+            {
+                lowerPaths[i] = paths[i].toLowerCase(Locale.ENGLISH);
+            }
+        }
+    }
+    
+    /**
+     * Sorted paths of views in {@link #index}. null if should be rebuilt.
+     * 
+     * Modified only with the lock of this class.
+     */
+    private static volatile SortedPaths sortedPaths = null;
+    
+    private ViewIndex()
+    {
+    }
+    
+    /**
+     * Returns a view in Jenkins.
+     * 
+     * As {@link Jenkins#getView(String)} does,
+     * a view not found in Jenkins is looked up in the primary view
+     * if it is a view group.
+     * 
+     * @param path  the path of the view.
+     * @return      the view. null if not found.
+     */
+    public static View getView(String path)
+    {
+        if(path == null)
+        {
+            return null;
+        }
+        Index current = getIndex();
+        View view = current.views.get(path);
+        if(view == null && current.primaryView instanceof ViewGroup)
+        {
+            view = current.views.get(current.primaryView.getViewName() + SEPARATOR + path);
+        }
+        return view;
+    }
+    
+    /**
+     * Returns the index, rebuilding it if needed.
+     * 
+     * @return the index.
+     */
+    private static Index getIndex()
+    {
+        Jenkins jenkins = Jenkins.getInstance();
+        Index current = index;
+        if(current != null && current.isCurrent(generation, jenkins))
+        {
+            return current;
+        }
+        synchronized(ViewIndex.class)
+        {
+            if(index == null || !index.isCurrent(generation, jenkins))
+            {
+                Index newIndex = new Index(generation, jenkins);
+                addViews(newIndex.views, "", jenkins.getViews());
+                index = newIndex;
+                sortedPaths = null;
+            }
+            return index;
+        }
+    }
+    
+    /**
+     * Adds views and views contained in them to the index.
+     * 
+     * @param newIndex  the index to add to.
+     * @param prefix    the path of the view group containing views, followed by {@link #SEPARATOR}.
+     * @param views     views to add.
+     */
+    private static void addViews(Map<String, View> newIndex, String prefix, Collection<View> views)
+    {
+        for(View view: views)
+        {
+            String path = prefix + view.getViewName();
+            newIndex.put(path, view);
+            if(view instanceof ViewGroup)
+            {
+                addViews(newIndex, path + SEPARATOR, ((ViewGroup)view).getViews());
+            }
+        }
+    }
+    
+    /**
+     * Returns the path of a view.
+     * 
+     * @param view  the view.
+     * @return      the path of the view. null if the view is not contained in Jenkins.
+     */
+    public static String getPath(View view)
+    {
+        StringBuilder path = new StringBuilder(view.getViewName());
+        ViewGroup owner = view.getOwner();
+        while(owner instanceof View)
+        {
+            path.insert(0, SEPARATOR).insert(0, ((View)owner).getViewName());
+            owner = ((View)owner).getOwner();
+        }
+        return (owner == Jenkins.getInstance())?path.toString():null;
+    }
+    
+    /**
+     * Returns paths of views matching a query, to be chosen from.
+     * 
+     * Paths starting with the query come first, followed by paths containing it,
+     * both sorted ignoring case.
+     * Views listing all jobs ({@link AllView}) are not contained.
+     * 
+     * @param query the string to match paths, ignoring case. May be null to list all paths.
+     * @param limit the maximum number of paths to return.
+     * @return      paths of views.
+     */
+    public static List<String> findPaths(String query, int limit)
+    {
+        SortedPaths sorted = getSortedPaths();
+        List<String> found = new ArrayList<String>();
+        if(StringUtils.isEmpty(query))
+        {
+            for(int i = 0; i < sorted.paths.length && found.size() < limit; ++i)
+            {
+                found.add(sorted.paths[i]);
+            }
+            return found;
+        }
+        
+        String lowerQuery = query.toLowerCase(Locale.ENGLISH);
+        
+        // Paths starting with the query are placed together.
+        int start = Arrays.binarySearch(sorted.paths, query, String.CASE_INSENSITIVE_ORDER);
+        if(start < 0)
+        {
+            start = -start - 1;
+        }
+        while(start > 0 && sorted.lowerPaths[start - 1].startsWith(lowerQuery))
+        {
+            --start;
+        }
+        for(int i = start; i < sorted.paths.length && found.size() < limit; ++i)
+        {
+            if(!sorted.lowerPaths[i].startsWith(lowerQuery))
+            {
+                break;
+            }
+            found.add(sorted.paths[i]);
+        }
+        
+        for(int i = 0; i < sorted.paths.length && found.size() < limit; ++i)
+        {
+            String lowerPath = sorted.lowerPaths[i];
+            if(!lowerPath.startsWith(lowerQuery) && lowerPath.contains(lowerQuery))
+            {
+                found.add(sorted.paths[i]);
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * Returns sorted paths of views, rebuilding them if needed.
+     * 
+     * @return sorted paths of views.
+     */
+    private static SortedPaths getSortedPaths()
+    {
+        Index currentIndex = getIndex();
+        SortedPaths current = sortedPaths;
+        if(current != null && current.index == currentIndex)
+        {
+            return current;
+        }
+        
+        List<String> pathList = new ArrayList<String>(currentIndex.views.size());
+        for(Map.Entry<String, View> entry: currentIndex.views.entrySet())
+        {
+            if(!(entry.getValue() instanceof AllView))
+            {
+                pathList.add(entry.getKey());
+            }
+        }
+        current = new SortedPaths(currentIndex, pathList.toArray(new String[pathList.size()]));
+        synchronized(ViewIndex.class)
+        {
+            // not to hold paths of the index already discarded.
+            if(index == currentIndex)
+            {
+                sortedPaths = current;
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * Returns the path of the view group containing a view.
+     * 
+     * @param path  the path of the view.
+     * @return      the path of the view group. null if the view is contained in Jenkins.
+     */
+    public static String getParentPath(String path)
+    {
+        int pos = path.lastIndexOf(SEPARATOR);
+        return (pos >= 0)?path.substring(0, pos):null;
+    }
+    
+    /**
+     * Adds a view created or updated by this plugin.
+     * 
+     * @param view  the view.
+     */
+    public static void add(View view)
+    {
+        String path = getPath(view);
+        if(path == null)
+        {
+            return;
+        }
+        synchronized(ViewIndex.class)
+        {
+            Index current = index;
+            if(current == null || !current.isCurrent(generation, Jenkins.getInstance()))
+            {
+                // will be rebuilt.
+                return;
+            }
+            boolean added = (current.views.put(path, view) == null);
+            if(view instanceof ViewGroup)
+            {
+                // views in it may be replaced, renamed or removed.
+                // Replaced before removed, not to miss views still contained.
+                String prefix = path + SEPARATOR;
+                Map<String, View> children = new HashMap<String, View>();
+                addViews(children, prefix, ((ViewGroup)view).getViews());
+                current.views.putAll(children);
+                for(Iterator<String> it = current.views.keySet().iterator(); it.hasNext();)
+                {
+                    String childPath = it.next();
+                    if(childPath.startsWith(prefix) && !children.containsKey(childPath))
+                    {
+                        it.remove();
+                    }
+                }
+                added = true;
+            }
+            if(added)
+            {
+                sortedPaths = null;
+            }
+        }
+    }
+    
+    /**
+     * Bumps the generation, and rebuilds the index in the next lookup.
+     */
+    public static void invalidate()
+    {
+        synchronized(ViewIndex.class)
+        {
+            ++generation;
+            index = null;
+            sortedPaths = null;
+        }
+    }
+}
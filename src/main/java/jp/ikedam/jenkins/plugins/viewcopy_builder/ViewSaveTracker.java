@@ -0,0 +1,154 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import jenkins.model.Jenkins;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.Saveable;
+import hudson.model.View;
+import hudson.model.ViewGroup;
+import hudson.model.listeners.SaveableListener;
+
+/**
+ * Tracks saves of views, and discards information of views held by this plugin.
+ * 
+ * Views are saved through their owners (that is, Jenkins or a view group).
+ * When a view group is saved, only information of it and views in it is discarded.
+ * When Jenkins is saved, it is not possible to tell which view is changed,
+ * so all information is discarded.
+ * Saves of other objects never change views, and are ignored.
+ * Saves by this plugin itself update only the affected views.
+ * All information is also discarded when Jenkins is started,
+ * as it may be held from another Jenkins instance in the same JVM.
+ */
+public class ViewSaveTracker
+{
+    /**
+     * Whether the current thread is saving views by itself.
+     */
+    private static final ThreadLocal<Boolean> OWN_SAVE = new ThreadLocal<Boolean>();
+    
+    private ViewSaveTracker()
+    {
+    }
+    
+    /**
+     * Discards all information when views are loaded,
+     * and loads copies performed before.
+     */
+    @Initializer(after=InitMilestone.JOB_LOADED)
+    public static void onLoaded()
+    {
+        ViewTemplateCache.invalidateAll();
+        ViewIndex.invalidate();
+        ViewcopyMemo.load();
+    }
+    
+    /**
+     * Called before this plugin saves a view.
+     * 
+     * Saves in the current thread do not discard information
+     * until {@link #endOwnSave(View)} is called.
+     */
+    public static void beginOwnSave()
+    {
+        OWN_SAVE.set(Boolean.TRUE);
+    }
+    
+    /**
+     * Called after this plugin saved a view.
+     * 
+     * Must be called in the finally block
+     * corresponding to {@link #beginOwnSave()}.
+     * 
+     * @param view  the view saved. May be null if failed to create.
+     */
+    public static void endOwnSave(View view)
+    {
+        OWN_SAVE.remove();
+        if(view != null)
+        {
+            ViewTemplateCache.invalidate(view);
+            ViewIndex.add(view);
+        }
+    }
+    
+    /**
+     * Discards documents of a view and views in it.
+     * 
+     * @param view  the view changed.
+     */
+    private static void invalidateViews(View view)
+    {
+        ViewTemplateCache.invalidate(view);
+        if(view instanceof ViewGroup)
+        {
+            for(View child: ((ViewGroup)view).getViews())
+            {
+                invalidateViews(child);
+            }
+        }
+    }
+    
+    /**
+     * Discards information when views are saved.
+     */
+    @Extension
+    public static class SaveableListenerImpl extends SaveableListener
+    {
+        /**
+         * Discards information of views the saved object contains.
+         * 
+         * Only views in Jenkins are indexed and cached,
+         * so saves of other objects, including view groups in items, are ignored.
+         * 
+         * @param o     the saved object.
+         * @param file  the file saved to.
+         * @see hudson.model.listeners.SaveableListener#onChange(hudson.model.Saveable, hudson.XmlFile)
+         */
+        @Override
+        public void onChange(Saveable o, XmlFile file)
+        {
+            if(OWN_SAVE.get() != null)
+            {
+                return;
+            }
+            if(o instanceof View)
+            {
+                // a view group saved by itself.
+                invalidateViews((View)o);
+                ViewIndex.add((View)o);
+            }
+            else if(o instanceof Jenkins)
+            {
+                ViewTemplateCache.invalidateAll();
+                ViewIndex.invalidate();
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import hudson.model.Saveable;
+import hudson.util.DaemonThreadFactory;
+
+/**
+ * Saves owners of views in a single thread, coalescing saves requested at once.
+ * 
+ * Each save of Jenkins rewrites the whole system config.xml,
+ * and many builds finishing at once compete for it.
+ * Saves are requested to the writer thread, and saves of the same owner
+ * requested while the writer is busy are performed only once,
+ * as a save always writes the latest state of all views in the owner.
+ * Callers wait until their views are saved.
+ */
+public class ViewSaveWriter
+{
+    /**
+     * The thread to save owners. Terminates when idle.
+     */
+    private static final ThreadPoolExecutor WRITER = createExecutor();
+    
+    /**
+     * The number of saves shared with other requests since Jenkins started.
+     */
+    private static final AtomicLong TOTAL_SAVES_COALESCED = new AtomicLong();
+    
+    private static final Object LOCK = new Object();
+    
+    /**
+     * Requests not yet taken by the writer. Guarded by {@link #LOCK}.
+     */
+    private static List<Request> pending = new ArrayList<Request>();
+    
+    /**
+     * Whether the writer is scheduled to take pending requests. Guarded by {@link #LOCK}.
+     */
+    private static boolean scheduled = false;
+    
+    /**
+     * A request to save an owner.
+     */
+    private static class Request
+    {
+        private final Saveable owner;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Exception error = null;
+        
+        public Request(Saveable owner)
+        {
+            this.owner = owner;
+        }
+    }
+    
+    private ViewSaveWriter()
+    {
+    }
+    
+    /**
+     * Create the thread to save owners.
+     * 
+     * @return the thread pool with a single thread.
+     */
+    private static ThreadPoolExecutor createExecutor()
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                1,
+                1,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new DaemonThreadFactory()
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+    
+    /**
+     * Returns the number of saves shared with other requests since Jenkins started.
+     * 
+     * @return the number of saves coalesced.
+     */
+    public static long getTotalSavesCoalesced()
+    {
+        return TOTAL_SAVES_COALESCED.get();
+    }
+    
+    /**
+     * Returns the number of requests waiting for the writer.
+     * 
+     * @return the number of requests.
+     */
+    static int getPendingCount()
+    {
+        synchronized(LOCK)
+        {
+            return pending.size();
+        }
+    }
+    
+    /**
+     * Saves an owner of views in the writer thread, and waits for it.
+     * 
+     * The owner may be saved together with requests from other builds.
+     * 
+     * @param owner the object saving views, that is, Jenkins.
+     * @throws IOException  failed to save.
+     * @throws InterruptedException the build is aborted while waiting.
+     *          The owner is still saved later.
+     */
+    public static void save(Saveable owner) throws IOException, InterruptedException
+    {
+        Request request = new Request(owner);
+        synchronized(LOCK)
+        {
+            pending.add(request);
+            if(!scheduled)
+            {
+                scheduled = true;
+                WRITER.execute(new Runnable()
+                {
+                    public void run()
+                    {
+                        writePending();
+                    }
+                });
+            }
+        }
+        request.done.await();
+        if(request.error != null)
+        {
+            throw new IOException("Failed to save views", request.error);
+        }
+    }
+    
+    /**
+     * Takes all pending requests, and saves each owner once.
+     * 
+     * Requests made while saving are taken in the next run.
+     */
+    private static void writePending()
+    {
+        List<Request> requests;
+        synchronized(LOCK)
+        {
+            requests = pending;
+            pending = new ArrayList<Request>();
+            scheduled = false;
+        }
+        
+        Map<Saveable, List<Request>> requestsByOwner = new LinkedHashMap<Saveable, List<Request>>();
+        for(Request request: requests)
+        {
+            List<Request> ownerRequests = requestsByOwner.get(request.owner);
+            if(ownerRequests == null)
+            {
+                ownerRequests = new ArrayList<Request>();
+                requestsByOwner.put(request.owner, ownerRequests);
+            }
+            ownerRequests.add(request);
+        }
+        
+        for(Map.Entry<Saveable, List<Request>> entry: requestsByOwner.entrySet())
+        {
+            Exception error = null;
+            // Views are already discarded from the cache when written.
+            ViewSaveTracker.beginOwnSave();
+            try
+            {
+                entry.getKey().save();
+            }
+            catch(IOException e)
+            {
+                error = e;
+            }
+            catch(RuntimeException e)
+            {
+                error = e;
+            }
+            finally
+            {
+                ViewSaveTracker.endOwnSave(null);
+                TOTAL_SAVES_COALESCED.addAndGet(entry.getValue().size() - 1);
+                for(Request request: entry.getValue())
+                {
+                    request.error = error;
+                    request.done.countDown();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes copies to the same view.
+ * 
+ * A copy looks up the view to be copied to, and then creates or updates it.
+ * Without locks, two builds copying to the same new view can both find it missing,
+ * and both create it.
+ * 
+ * Locks are striped by the path of the view to be copied to,
+ * so that copies to different views are rarely serialized,
+ * without holding a lock object for every path ever copied to.
+ */
+public class ViewTargetLock
+{
+    /**
+     * The number of locks. Paths sharing a lock are serialized with each other.
+     */
+    private static final int STRIPES = 64;
+    
+    private static final ReentrantLock[] LOCKS = new ReentrantLock[STRIPES];
+    
+    static
+    {
+        for(int i = 0; i < STRIPES; ++i)
+        {
+            LOCKS[i] = new ReentrantLock();
+        }
+    }
+    
+    /**
+     * The number of locks acquired since Jenkins started.
+     */
+    private static final AtomicLong TOTAL_ACQUIRED = new AtomicLong();
+    
+    /**
+     * The number of locks acquired after waiting for another copy.
+     */
+    private static final AtomicLong TOTAL_CONTENDED = new AtomicLong();
+    
+    /**
+     * The total time waited for locks, in milliseconds.
+     */
+    private static final AtomicLong TOTAL_WAIT_MILLIS = new AtomicLong();
+    
+    /**
+     * Returns the number of locks acquired since Jenkins started.
+     * 
+     * @return the number of locks acquired.
+     */
+    public static long getTotalAcquired()
+    {
+        return TOTAL_ACQUIRED.get();
+    }
+    
+    /**
+     * Returns the number of locks acquired after waiting for another copy
+     * since Jenkins started.
+     * 
+     * @return the number of locks acquired after waiting.
+     */
+    public static long getTotalContended()
+    {
+        return TOTAL_CONTENDED.get();
+    }
+    
+    /**
+     * Returns the total time waited for locks since Jenkins started.
+     * 
+     * @return the time waited in milliseconds.
+     */
+    public static long getTotalWaitMillis()
+    {
+        return TOTAL_WAIT_MILLIS.get();
+    }
+    
+    /**
+     * Returns the lock for a path.
+     * 
+     * @param path the path of the view to be copied to.
+     * @return the lock shared with paths with the same hash.
+     */
+    static ReentrantLock getLock(String path)
+    {
+        return LOCKS[(path.hashCode() & 0x7fffffff) % STRIPES];
+    }
+    
+    /**
+     * Acquires the lock for a path, waiting for other copies to the path.
+     * 
+     * Always call {@link #unlock(String)} in finally.
+     * 
+     * @param path the path of the view to be copied to.
+     * @return the time waited in milliseconds.
+     * @throws InterruptedException the build is aborted while waiting.
+     */
+    public static long lock(String path) throws InterruptedException
+    {
+        ReentrantLock lock = getLock(path);
+        long waited = 0;
+        if(!lock.tryLock())
+        {
+            long start = System.nanoTime();
+            lock.lockInterruptibly();
+            waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            TOTAL_CONTENDED.incrementAndGet();
+            TOTAL_WAIT_MILLIS.addAndGet(waited);
+        }
+        TOTAL_ACQUIRED.incrementAndGet();
+        return waited;
+    }
+    
+    /**
+     * Releases the lock for a path.
+     * 
+     * @param path the path of the view to be copied to.
+     */
+    public static void unlock(String path)
+    {
+        getLock(path).unlock();
+    }
+}
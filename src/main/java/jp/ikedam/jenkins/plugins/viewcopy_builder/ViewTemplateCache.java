@@ -0,0 +1,469 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.thoughtworks.xstream.io.xml.DomWriter;
+
+import hudson.model.View;
+import hudson.model.ViewGroup;
+
+/**
+ * Caches the configuration XML documents of views copied from.
+ * 
+ * Serializing a view with XStream costs in proportion to the size of the view,
+ * and jobs often copy the same template views in every build.
+ * Documents are cached with the view object as the key,
+ * and a copy of the cached document is returned
+ * so the cached one is never modified.
+ * 
+ * Documents are discarded by {@link ViewSaveTracker} when views are saved.
+ * 
+ * When many builds copy the same view at once, the view is serialized
+ * only in the first of them, and others wait for and share the result.
+ */
+public class ViewTemplateCache
+{
+    /**
+     * The number of documents held.
+     */
+    private static final int CACHE_SIZE = 32;
+    
+    /**
+     * Documents of views. Accesses must be synchronized with this object.
+     * 
+     * Views do not override equals, so views are compared by identity.
+     */
+    private static final LruCache<View, Document> CACHE = new LruCache<View, Document>(CACHE_SIZE);
+    
+    /**
+     * Documents of view groups including names of views in them.
+     * Accesses must be synchronized with {@link #CACHE}.
+     */
+    private static final LruCache<View, Document> TREE_CACHE = new LruCache<View, Document>(CACHE_SIZE);
+    
+    /**
+     * Fingerprints of cached documents.
+     * Accesses must be synchronized with {@link #CACHE}.
+     * 
+     * Discarded together with documents, as documents are weakly referred.
+     */
+    private static final Map<Document, byte[]> FINGERPRINTS = new WeakHashMap<Document, byte[]>();
+    
+    /**
+     * Serializations in progress. Accesses must be synchronized with {@link #CACHE}.
+     */
+    private static final Map<View, FutureTask<Document>> IN_FLIGHT = new HashMap<View, FutureTask<Document>>();
+    
+    /**
+     * Serializations of view groups in progress.
+     * Accesses must be synchronized with {@link #CACHE}.
+     */
+    private static final Map<View, FutureTask<Document>> TREE_IN_FLIGHT = new HashMap<View, FutureTask<Document>>();
+    
+    /**
+     * The number of requests that shared serializations of other requests since Jenkins started.
+     */
+    private static final AtomicLong TOTAL_SHARED = new AtomicLong();
+    
+    /**
+     * Incremented each time documents are discarded.
+     * 
+     * A document serialized while documents are discarded is not cached.
+     * Must be accessed with the lock of {@link #CACHE}.
+     */
+    private static long generation = 0;
+    
+    private ViewTemplateCache()
+    {
+    }
+    
+    /**
+     * Returns the number of requests that waited for serializations of other requests
+     * instead of serializing views by themselves, since Jenkins started.
+     * 
+     * @return the number of requests.
+     */
+    public static long getTotalShared()
+    {
+        return TOTAL_SHARED.get();
+    }
+    
+    /**
+     * Returns the configuration XML document of a view.
+     * 
+     * The returned document is a copy, and can be modified by the caller.
+     * 
+     * @param view  the view.
+     * @return      the configuration XML document.
+     * @throws ParserConfigurationException
+     */
+    public static Document getDocument(View view)
+        throws ParserConfigurationException
+    {
+        return getDocument(view, false);
+    }
+    
+    /**
+     * Returns the configuration XML document of a view and views in it.
+     * 
+     * Names of views in the view are kept, while the name of the view itself is omitted.
+     * The returned document is a copy, and can be modified by the caller.
+     * 
+     * @param view  the view.
+     * @return      the configuration XML document.
+     * @throws ParserConfigurationException
+     */
+    public static Document getTreeDocument(View view)
+        throws ParserConfigurationException
+    {
+        return getDocument(view, true);
+    }
+    
+    /**
+     * Returns the configuration XML document of a view.
+     * 
+     * @param view  the view.
+     * @param tree  whether to keep names of views in the view.
+     * @return      the configuration XML document.
+     * @throws ParserConfigurationException
+     */
+    private static Document getDocument(View view, boolean tree)
+        throws ParserConfigurationException
+    {
+        return copyDocument(getCachedDocument(view, tree));
+    }
+    
+    /**
+     * Returns the fingerprint of the configuration XML document of a view.
+     * 
+     * @param view  the view.
+     * @return      the fingerprint computed with {@link XmlFingerprint}.
+     * @throws ParserConfigurationException
+     * @see #getDocument(View)
+     */
+    public static byte[] getFingerprint(View view)
+        throws ParserConfigurationException
+    {
+        return getFingerprint(view, false);
+    }
+    
+    /**
+     * Returns the fingerprint of the configuration XML document of a view and views in it.
+     * 
+     * @param view  the view.
+     * @return      the fingerprint computed with {@link XmlFingerprint}.
+     * @throws ParserConfigurationException
+     * @see #getTreeDocument(View)
+     */
+    public static byte[] getTreeFingerprint(View view)
+        throws ParserConfigurationException
+    {
+        return getFingerprint(view, true);
+    }
+    
+    /**
+     * Returns the fingerprint of the configuration XML document of a view.
+     * 
+     * Computed only once for each cached document.
+     * 
+     * @param view  the view.
+     * @param tree  whether to keep names of views in the view.
+     * @return      the fingerprint.
+     * @throws ParserConfigurationException
+     */
+    private static byte[] getFingerprint(View view, boolean tree)
+        throws ParserConfigurationException
+    {
+        Document cached = getCachedDocument(view, tree);
+        byte[] fingerprint;
+        synchronized(CACHE)
+        {
+            fingerprint = FINGERPRINTS.get(cached);
+        }
+        if(fingerprint == null)
+        {
+            synchronized(cached)
+            {
+                fingerprint = XmlFingerprint.digest(cached);
+            }
+            synchronized(CACHE)
+            {
+                FINGERPRINTS.put(cached, fingerprint);
+            }
+        }
+        return fingerprint;
+    }
+    
+    /**
+     * Returns the cached configuration XML document of a view.
+     * 
+     * The returned document is shared, and must not be modified.
+     * If the view is being serialized by another thread, waits for it.
+     * 
+     * @param view  the view.
+     * @param tree  whether to keep names of views in the view.
+     * @return      the configuration XML document.
+     * @throws ParserConfigurationException
+     */
+    private static Document getCachedDocument(final View view, final boolean tree)
+        throws ParserConfigurationException
+    {
+        LruCache<View, Document> cache = tree?TREE_CACHE:CACHE;
+        Map<View, FutureTask<Document>> inFlight = tree?TREE_IN_FLIGHT:IN_FLIGHT;
+        FutureTask<Document> task;
+        boolean serializing = false;
+        long currentGeneration;
+        synchronized(CACHE)
+        {
+            Document cached = cache.get(view);
+            if(cached != null)
+            {
+                return cached;
+            }
+            currentGeneration = generation;
+            task = inFlight.get(view);
+            if(task == null)
+            {
+                task = new FutureTask<Document>(new Callable<Document>()
+                {
+                    public Document call() throws ParserConfigurationException
+                    {
+                        return serialize(view, tree);
+                    }
+                });
+                inFlight.put(view, task);
+                serializing = true;
+            }
+        }
+        
+        if(!serializing)
+        {
+            TOTAL_SHARED.incrementAndGet();
+            return getResult(task);
+        }
+        
+        Document cached = null;
+        try
+        {
+            task.run();
+            cached = getResult(task);
+        }
+        finally
+        {
+            synchronized(CACHE)
+            {
+                // may be already replaced if discarded while serializing.
+                if(inFlight.get(view) == task)
+                {
+                    inFlight.remove(view);
+                }
+                if(cached != null && currentGeneration == generation)
+                {
+                    cache.put(view, cached);
+                }
+            }
+        }
+        return cached;
+    }
+    
+    /**
+     * Serializes a view to a configuration XML document.
+     * 
+     * @param view  the view.
+     * @param tree  whether to keep names of views in the view.
+     * @return      the configuration XML document.
+     * @throws ParserConfigurationException
+     */
+    private static Document serialize(View view, boolean tree)
+        throws ParserConfigurationException
+    {
+        Document doc = XmlToolkit.newDocument();
+        if(tree)
+        {
+            XmlToolkit.getViewTreeXStream().marshal(view, new DomWriter(doc));
+            removeName(doc);
+        }
+        else
+        {
+            XmlToolkit.getViewXStream().marshal(view, new DomWriter(doc));
+        }
+        return doc;
+    }
+    
+    /**
+     * Waits for a serialization, and returns its result.
+     * 
+     * Serializations take a short time, so waits are not interrupted.
+     * 
+     * @param task  the serialization.
+     * @return      the configuration XML document.
+     * @throws ParserConfigurationException
+     */
+    private static Document getResult(FutureTask<Document> task)
+        throws ParserConfigurationException
+    {
+        boolean interrupted = false;
+        try
+        {
+            while(true)
+            {
+                try
+                {
+                    return task.get();
+                }
+                catch(InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        catch(ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if(cause instanceof ParserConfigurationException)
+            {
+                throw (ParserConfigurationException)cause;
+            }
+            if(cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            if(cause instanceof Error)
+            {
+                throw (Error)cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        finally
+        {
+            if(interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Removes the name of the view from a document.
+     * 
+     * @param doc   the configuration XML document of a view.
+     */
+    private static void removeName(Document doc)
+    {
+        Element root = doc.getDocumentElement();
+        for(Node node = root.getFirstChild(); node != null;)
+        {
+            Node next = node.getNextSibling();
+            if(node instanceof Element && "name".equals(node.getNodeName()))
+            {
+                root.removeChild(node);
+            }
+            node = next;
+        }
+    }
+    
+    /**
+     * Copy a cached document.
+     * 
+     * DOM implementations are not thread-safe even for reading,
+     * so the document is locked while it is copied.
+     * 
+     * @param cached    the document to copy.
+     * @return          the copy of the document.
+     * @throws ParserConfigurationException
+     */
+    private static Document copyDocument(Document cached)
+        throws ParserConfigurationException
+    {
+        synchronized(cached)
+        {
+            return XmlToolkit.copyDocument(cached);
+        }
+    }
+    
+    /**
+     * Returns whether the document of a view is cached.
+     * 
+     * @param view  the view.
+     * @return      whether the document of the view is cached.
+     */
+    static boolean isCached(View view)
+    {
+        synchronized(CACHE)
+        {
+            return CACHE.containsKey(view);
+        }
+    }
+    
+    /**
+     * Discards the document of a view and views containing it.
+     * 
+     * @param view  the view changed.
+     */
+    public static void invalidate(View view)
+    {
+        synchronized(CACHE)
+        {
+            ++generation;
+            while(view != null)
+            {
+                CACHE.remove(view);
+                TREE_CACHE.remove(view);
+                IN_FLIGHT.remove(view);
+                TREE_IN_FLIGHT.remove(view);
+                ViewGroup owner = view.getOwner();
+                view = (owner instanceof View)?(View)owner:null;
+            }
+        }
+    }
+    
+    /**
+     * Discards all documents.
+     */
+    public static void invalidateAll()
+    {
+        synchronized(CACHE)
+        {
+            ++generation;
+            CACHE.clear();
+            TREE_CACHE.clear();
+            IN_FLIGHT.clear();
+            TREE_IN_FLIGHT.clear();
+        }
+    }
+}
@@ -0,0 +1,446 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.model.View;
+import hudson.model.ViewGroup;
+import hudson.util.DaemonThreadFactory;
+
+/**
+ * Applies operations to a view group and all views in it.
+ * 
+ * The configuration XML document of a view group contains views in it.
+ * The document is split into documents for each view,
+ * where views in it are replaced with placeholders,
+ * operations are applied to each of them in parallel,
+ * and they are assembled again into the document of the view group.
+ * 
+ * Operations are applied in a thread pool shared by all builds,
+ * so copying many view groups at once does not consume too many threads.
+ * Operations must not modify their own fields in
+ * {@link ViewcopyOperation#perform(Document, FilePath, EnvVars, PrintStream)}.
+ */
+public class ViewTreeTransformer
+{
+    /**
+     * The target of processing instructions placed in place of views.
+     */
+    private static final String PLACEHOLDER = "viewcopy-view";
+    
+    /**
+     * The name of the element for the collection of views in a view group.
+     */
+    private static final String VIEWS = "views";
+    
+    /**
+     * The number of threads to apply operations.
+     */
+    private static final int POOL_SIZE = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 4));
+    
+    /**
+     * Threads to apply operations. Idle threads terminate.
+     */
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+    
+    /**
+     * Create the thread pool to apply operations.
+     * 
+     * @return the thread pool.
+     */
+    private static ThreadPoolExecutor createExecutor()
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                POOL_SIZE,
+                POOL_SIZE,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new DaemonThreadFactory()
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+    
+    /**
+     * A view in the view group to transform.
+     */
+    private static class ViewNode implements Callable<Document>
+    {
+        private final View view;
+        
+        private final String path;
+        
+        private final List<ViewNode> children = new ArrayList<ViewNode>();
+        
+        private Document doc;
+        
+        private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+        
+        private long elapsed;
+        
+        private final List<ViewcopyOperation> operationList;
+        
+        private final FilePath workspace;
+        
+        private final EnvVars env;
+        
+        public ViewNode(View view, String path, Document doc, List<ViewcopyOperation> operationList, FilePath workspace, EnvVars env)
+        {
+            this.view = view;
+            this.path = path;
+            this.doc = doc;
+            this.operationList = operationList;
+            this.workspace = workspace;
+            this.env = env;
+        }
+        
+        /**
+         * Applies operations to the document of the view.
+         * 
+         * Messages are written to the log of this node,
+         * and written to the build log after all views are transformed.
+         * 
+         * @return the transformed document. null if failed.
+         * @throws Exception
+         * @see java.util.concurrent.Callable#call()
+         */
+        public Document call() throws Exception
+        {
+            long start = System.currentTimeMillis();
+            PrintStream logger = new PrintStream(log, true, "UTF-8");
+            try
+            {
+                for(ViewcopyOperation operation: operationList)
+                {
+                    if(!operation.isApplicable(view.getClass()))
+                    {
+                        logger.println(String.format("Operation %s is not applicable to %s(%s), skipped",
+                                operation.getClass().getName(),
+                                path,
+                                view.getClass().getName()
+                        ));
+                        continue;
+                    }
+                    doc = operation.perform(doc, workspace, env, logger);
+                    if(doc == null)
+                    {
+                        return null;
+                    }
+                }
+                return doc;
+            }
+            catch(Exception e)
+            {
+                e.printStackTrace(logger);
+                return null;
+            }
+            finally
+            {
+                logger.close();
+                elapsed = System.currentTimeMillis() - start;
+            }
+        }
+    }
+    
+    private final List<ViewcopyOperation> operationList;
+    
+    private final FilePath workspace;
+    
+    private final EnvVars env;
+    
+    /**
+     * @param operationList the operations to apply. May be null.
+     * @param workspace     the workspace of the build. May be null.
+     * @param env           variables used when copying.
+     */
+    public ViewTreeTransformer(List<ViewcopyOperation> operationList, FilePath workspace, EnvVars env)
+    {
+        this.operationList = (operationList != null)?operationList:new ArrayList<ViewcopyOperation>();
+        this.workspace = workspace;
+        this.env = env;
+    }
+    
+    /**
+     * Applies operations to a view group and all views in it.
+     * 
+     * @param view      the view group to be copied from.
+     * @param doc       the configuration XML document of the view group,
+     *                  containing names of views in it. Modified in this method.
+     * @param logger
+     * @return  the transformed document. null if failed.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public Document transform(View view, Document doc, PrintStream logger)
+        throws IOException, InterruptedException
+    {
+        // DOM is not thread-safe, so split the document in this thread.
+        List<ViewNode> nodeList = new ArrayList<ViewNode>();
+        ViewNode root;
+        try
+        {
+            root = split(view, view.getViewName(), doc, nodeList);
+        }
+        catch(Exception e)
+        {
+            logger.println("Failed to split the configuration into views.");
+            e.printStackTrace(logger);
+            return null;
+        }
+        
+        long start = System.currentTimeMillis();
+        List<Future<Document>> futureList = new ArrayList<Future<Document>>(nodeList.size());
+        for(ViewNode node: nodeList)
+        {
+            futureList.add(EXECUTOR.submit(node));
+        }
+        
+        boolean succeeded = true;
+        try
+        {
+            for(int i = 0; i < nodeList.size(); ++i)
+            {
+                ViewNode node = nodeList.get(i);
+                try
+                {
+                    node.doc = futureList.get(i).get();
+                }
+                catch(ExecutionException e)
+                {
+                    e.getCause().printStackTrace(logger);
+                    node.doc = null;
+                }
+                logger.println(String.format("Transformed %s (%d ms)", node.path, node.elapsed));
+                logger.print(node.log.toString("UTF-8"));
+                if(node.doc == null)
+                {
+                    logger.println(String.format("Failed to transform %s", node.path));
+                    succeeded = false;
+                }
+            }
+        }
+        finally
+        {
+            // cancel remaining operations if interrupted.
+            for(Future<Document> future: futureList)
+            {
+                future.cancel(true);
+            }
+        }
+        logger.println(String.format("Transformed %d views with %d threads (%d ms)",
+                nodeList.size(),
+                POOL_SIZE,
+                System.currentTimeMillis() - start
+        ));
+        if(!succeeded)
+        {
+            return null;
+        }
+        
+        // Assemble from leaves, as children follow their parent in nodeList.
+        for(int i = nodeList.size() - 1; i >= 0; --i)
+        {
+            ViewNode node = nodeList.get(i);
+            for(int index = 0; index < node.children.size(); ++index)
+            {
+                if(!assemble(node, index))
+                {
+                    logger.println(String.format("Lost the position of %s in %s.",
+                            node.children.get(index).path,
+                            node.path
+                    ));
+                    return null;
+                }
+            }
+        }
+        return root.doc;
+    }
+    
+    /**
+     * Split a document into documents for each view.
+     * 
+     * @param view      the view.
+     * @param path      the path of the view to log.
+     * @param doc       the document of the view. Views in it are replaced with placeholders.
+     * @param nodeList  the list to add nodes. Children are added after the parent.
+     * @return          the node for the view.
+     * @throws Exception
+     */
+    private ViewNode split(View view, String path, Document doc, List<ViewNode> nodeList)
+        throws Exception
+    {
+        ViewNode node = new ViewNode(view, path, doc, operationList, workspace, env);
+        nodeList.add(node);
+        if(!(view instanceof ViewGroup))
+        {
+            return node;
+        }
+        
+        Element viewsElement = getChildElement(doc.getDocumentElement(), VIEWS);
+        for(View child: ((ViewGroup)view).getViews())
+        {
+            String childPath = path + ViewIndex.SEPARATOR + child.getViewName();
+            Element element = (viewsElement != null)?findViewElement(viewsElement, child):null;
+            if(element == null)
+            {
+                throw new IllegalStateException(String.format("%s is not found in the configuration.", childPath));
+            }
+            
+            Document childDoc = XmlToolkit.newDocument();
+            childDoc.appendChild(childDoc.importNode(element, true));
+            ProcessingInstruction placeholder = doc.createProcessingInstruction(
+                    PLACEHOLDER,
+                    Integer.toString(node.children.size())
+            );
+            element.getParentNode().replaceChild(placeholder, element);
+            
+            node.children.add(split(child, childPath, childDoc, nodeList));
+        }
+        return node;
+    }
+    
+    /**
+     * Find the element for a view in a view group.
+     * 
+     * XStream writes a view as an element named with the alias of its class,
+     * or with the class attribute if the type of the field differs.
+     * The element is identified with its class and its name.
+     * Only views directly in the view group are searched,
+     * as views in nested view groups can have the same name and class.
+     * 
+     * @param viewsElement  the element for the collection of views in the view group.
+     * @param view      the view to find.
+     * @return          the element for the view. null if not found.
+     */
+    private static Element findViewElement(Element viewsElement, View view)
+    {
+        String alias = XmlToolkit.getViewTreeXStream().getMapper().serializedClass(view.getClass());
+        for(Node node = viewsElement.getFirstChild(); node != null; node = node.getNextSibling())
+        {
+            if(!(node instanceof Element))
+            {
+                continue;
+            }
+            Element element = (Element)node;
+            if(!alias.equals(element.getNodeName()) && !alias.equals(element.getAttribute("class")))
+            {
+                continue;
+            }
+            Element name = getChildElement(element, "name");
+            if(name != null && view.getViewName().equals(name.getTextContent()))
+            {
+                return element;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Returns the first child element with a name.
+     * 
+     * @param element   the element.
+     * @param name      the name of the child element.
+     * @return          the child element. null if not contained.
+     */
+    private static Element getChildElement(Element element, String name)
+    {
+        for(Node node = element.getFirstChild(); node != null; node = node.getNextSibling())
+        {
+            if(node instanceof Element && name.equals(node.getNodeName()))
+            {
+                return (Element)node;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Replace the placeholder of a child with the transformed document of the child.
+     * 
+     * @param node  the node of the parent.
+     * @param index the index of the child.
+     * @return      whether the placeholder is found.
+     */
+    private static boolean assemble(ViewNode node, int index)
+    {
+        ProcessingInstruction placeholder = findPlaceholder(node.doc.getDocumentElement(), Integer.toString(index));
+        if(placeholder == null)
+        {
+            return false;
+        }
+        Element childElement = node.children.get(index).doc.getDocumentElement();
+        placeholder.getParentNode().replaceChild(node.doc.importNode(childElement, true), placeholder);
+        return true;
+    }
+    
+    /**
+     * Find the placeholder of a child.
+     * 
+     * @param parent    the element to search in.
+     * @param data      the index of the child.
+     * @return          the placeholder. null if not found.
+     */
+    private static ProcessingInstruction findPlaceholder(Element parent, String data)
+    {
+        for(Node node = parent.getFirstChild(); node != null; node = node.getNextSibling())
+        {
+            if(node instanceof ProcessingInstruction)
+            {
+                ProcessingInstruction pi = (ProcessingInstruction)node;
+                if(PLACEHOLDER.equals(pi.getTarget()) && data.equals(pi.getData()))
+                {
+                    return pi;
+                }
+            }
+            else if(node instanceof Element)
+            {
+                ProcessingInstruction found = findPlaceholder((Element)node, data);
+                if(found != null)
+                {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+}
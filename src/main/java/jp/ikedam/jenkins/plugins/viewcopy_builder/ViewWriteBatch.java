@@ -0,0 +1,121 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import hudson.BulkChange;
+import hudson.model.Saveable;
+
+/**
+ * Defers saves of views written in a build step, and saves them at once.
+ * 
+ * Views are saved through their owners.
+ * For views in Jenkins, each save rewrites the whole system config.xml,
+ * which gets slow when many views are written in a build step.
+ * Saves are deferred with {@link BulkChange},
+ * and performed only once when the batch is committed,
+ * by {@link ViewSaveWriter} together with batches of other builds.
+ * 
+ * Must be used only in the thread that created it, as BulkChange is.
+ */
+public class ViewWriteBatch
+{
+    /**
+     * The number of saves avoided since Jenkins started.
+     */
+    private static final AtomicLong TOTAL_SAVES_AVOIDED = new AtomicLong();
+    
+    /**
+     * Returns the number of saves avoided by batches since Jenkins started.
+     * 
+     * @return the number of saves avoided.
+     */
+    public static long getTotalSavesAvoided()
+    {
+        return TOTAL_SAVES_AVOIDED.get();
+    }
+    
+    private final Saveable owner;
+    
+    private final BulkChange bulkChange;
+    
+    private int writes = 0;
+    
+    /**
+     * Starts deferring saves.
+     * 
+     * @param owner the object saving views, that is, Jenkins.
+     */
+    public ViewWriteBatch(Saveable owner)
+    {
+        this.owner = owner;
+        this.bulkChange = new BulkChange(owner);
+    }
+    
+    /**
+     * Called each time a view is written in this batch.
+     */
+    public void written()
+    {
+        ++writes;
+    }
+    
+    /**
+     * Returns the number of views written in this batch.
+     * 
+     * @return the number of views written.
+     */
+    public int getWrites()
+    {
+        return writes;
+    }
+    
+    /**
+     * Saves the owner once, if any view is written.
+     * 
+     * Always call this, even when the build step failed,
+     * as views written before the failure should be saved.
+     * 
+     * @return the number of saves avoided.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public int commit() throws IOException, InterruptedException
+    {
+        // The deferred save is performed by the writer instead.
+        bulkChange.abort();
+        if(writes <= 0)
+        {
+            return 0;
+        }
+        
+        ViewSaveWriter.save(owner);
+        
+        int avoided = writes - 1;
+        TOTAL_SAVES_AVOIDED.addAndGet(avoided);
+        return avoided;
+    }
+}
@@ -25,51 +25,52 @@ package jp.ikedam.jenkins.plugins.viewcopy_builder;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
 import java.io.Serializable;
-import java.io.StringWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
 
 import jenkins.model.Jenkins;
 
+import net.sf.json.JSONObject;
+
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
 import org.w3c.dom.Document;
-import org.xml.sax.ErrorHandler;
-import org.xml.sax.SAXException;
-import org.xml.sax.SAXParseException;
+import org.w3c.dom.Element;
 
-import com.thoughtworks.xstream.io.xml.DomDriver;
+import com.thoughtworks.xstream.XStreamException;
+import com.thoughtworks.xstream.io.xml.DomReader;
 
 import hudson.DescriptorExtensionList;
 import hudson.EnvVars;
 import hudson.Extension;
+import hudson.FilePath;
 import hudson.Launcher;
+import hudson.Util;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
-import hudson.model.AllView;
+import hudson.model.AutoCompletionCandidates;
 import hudson.model.BuildListener;
 import hudson.model.Descriptor;
 import hudson.model.View;
+import hudson.model.ViewGroup;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Builder;
-import hudson.util.ComboBoxModel;
 import hudson.util.FormValidation;
-import hudson.util.XStream2;
+import hudson.util.ListBoxModel;
 
 /**
  * A build step to copy a view.
@@ -109,6 +110,49 @@ public class ViewcopyBuilder extends Builder implements Serializable
         return toViewName;
     }
     
+    private List<ViewcopyTarget> targetList;
+    
+    /**
+     * Returns additional views to be copied to.
+     * 
+     * The view is fetched only once and copied to all these views,
+     * with variables defined for each view.
+     * 
+     * @return additional views to be copied to. May be null.
+     */
+    public List<ViewcopyTarget> getTargetList()
+    {
+        return targetList;
+    }
+    
+    private String bindingsFile;
+    
+    /**
+     * Returns the path of the file listing variable bindings, relative to the workspace.
+     * 
+     * When specified, views are copied for each row in the file,
+     * with variables overridden by the row.
+     * Variable expressions will be expanded.
+     * 
+     * @return the path of the file listing variable bindings. May be null.
+     */
+    public String getBindingsFile()
+    {
+        return bindingsFile;
+    }
+    
+    private BindingsFileFormat bindingsFileFormat;
+    
+    /**
+     * Returns the format of the file listing variable bindings.
+     * 
+     * @return the format of the file listing variable bindings.
+     */
+    public BindingsFileFormat getBindingsFileFormat()
+    {
+        return (bindingsFileFormat != null)?bindingsFileFormat:BindingsFileFormat.CSV;
+    }
+    
     private boolean overwrite = false;
     
     /**
@@ -150,6 +194,59 @@ public class ViewcopyBuilder extends Builder implements Serializable
         return viewcopyOperationList;
     }
     
+    private boolean recursive = false;
+    
+    /**
+     * Returns whether to copy views in the view group together.
+     * 
+     * When the view to be copied from is a view group,
+     * operations are applied to the view group and each view in it in parallel,
+     * and the view group is written at once.
+     * 
+     * @return whether to copy views in the view group together.
+     */
+    public boolean isRecursive()
+    {
+        return recursive;
+    }
+    
+    private boolean transformOnAgent = false;
+    
+    /**
+     * Returns whether to apply operations on the node the build runs on.
+     * 
+     * Only the configuration XML is sent to the node and sent back,
+     * so heavy operations do not load the master.
+     * Operations are applied on the master when the build runs on the master
+     * or views in the view group are copied together.
+     * 
+     * @return whether to apply operations on the node.
+     */
+    public boolean isTransformOnAgent()
+    {
+        return transformOnAgent;
+    }
+    
+    /**
+     * The maximum number of characters logged with {@link XmlLogLevel#PREVIEW}.
+     */
+    private static final int XML_PREVIEW_LENGTH = 4096;
+    
+    private XmlLogLevel xmlLogLevel;
+    
+    /**
+     * Returns how much of the configuration XML is logged.
+     * 
+     * Returns {@link XmlLogLevel#FULL} for configurations saved
+     * before this option is introduced.
+     * 
+     * @return how much of the configuration XML is logged.
+     */
+    public XmlLogLevel getXmlLogLevel()
+    {
+        return (xmlLogLevel != null)?xmlLogLevel:XmlLogLevel.FULL;
+    }
+    
     /**
      * Constructor to instantiate from parameters in the job configuration page.
      * 
@@ -162,14 +259,108 @@ public class ViewcopyBuilder extends Builder implements Serializable
      * @param overwrite     whether to overwrite if the view to be copied to is already existing.
      * @param viewcopyOperationList
      *                      the list of operations to be performed when copying.
+     * @param xmlLogLevel   how much of the configuration XML is logged.
+     * @param targetList    additional views to be copied to.
+     * @param bindingsFile  the path of the file listing variable bindings. may contains variable expressions.
+     * @param bindingsFileFormat    the format of the file listing variable bindings.
+     * @param recursive     whether to copy views in the view group together.
+     * @param transformOnAgent  whether to apply operations on the node the build runs on.
      */
     @DataBoundConstructor
-    public ViewcopyBuilder(String fromViewName, String toViewName, boolean overwrite, List<ViewcopyOperation> viewcopyOperationList)
+    public ViewcopyBuilder(String fromViewName, String toViewName, boolean overwrite, List<ViewcopyOperation> viewcopyOperationList, XmlLogLevel xmlLogLevel, List<ViewcopyTarget> targetList, String bindingsFile, BindingsFileFormat bindingsFileFormat, boolean recursive, boolean transformOnAgent)
     {
         this.fromViewName = StringUtils.trim(fromViewName);
         this.toViewName = StringUtils.trim(toViewName);
         this.overwrite = overwrite;
         this.viewcopyOperationList = viewcopyOperationList;
+        this.xmlLogLevel = xmlLogLevel;
+        this.targetList = targetList;
+        this.bindingsFile = StringUtils.trim(bindingsFile);
+        this.bindingsFileFormat = bindingsFileFormat;
+        this.recursive = recursive;
+        this.transformOnAgent = transformOnAgent;
+    }
+    
+    /**
+     * Constructor applying operations on the master.
+     * 
+     * @param fromViewName   a name of a view to be copied from. may contains variable expressions.
+     * @param toViewName     a name of a view to be copied to. may contains variable expressions.
+     * @param overwrite     whether to overwrite if the view to be copied to is already existing.
+     * @param viewcopyOperationList
+     *                      the list of operations to be performed when copying.
+     * @param xmlLogLevel   how much of the configuration XML is logged.
+     * @param targetList    additional views to be copied to.
+     * @param bindingsFile  the path of the file listing variable bindings. may contains variable expressions.
+     * @param bindingsFileFormat    the format of the file listing variable bindings.
+     * @param recursive     whether to copy views in the view group together.
+     */
+    public ViewcopyBuilder(String fromViewName, String toViewName, boolean overwrite, List<ViewcopyOperation> viewcopyOperationList, XmlLogLevel xmlLogLevel, List<ViewcopyTarget> targetList, String bindingsFile, BindingsFileFormat bindingsFileFormat, boolean recursive)
+    {
+        this(fromViewName, toViewName, overwrite, viewcopyOperationList, xmlLogLevel, targetList, bindingsFile, bindingsFileFormat, recursive, false);
+    }
+    
+    /**
+     * Constructor not copying views in view groups together.
+     * 
+     * @param fromViewName   a name of a view to be copied from. may contains variable expressions.
+     * @param toViewName     a name of a view to be copied to. may contains variable expressions.
+     * @param overwrite     whether to overwrite if the view to be copied to is already existing.
+     * @param viewcopyOperationList
+     *                      the list of operations to be performed when copying.
+     * @param xmlLogLevel   how much of the configuration XML is logged.
+     * @param targetList    additional views to be copied to.
+     * @param bindingsFile  the path of the file listing variable bindings. may contains variable expressions.
+     * @param bindingsFileFormat    the format of the file listing variable bindings.
+     */
+    public ViewcopyBuilder(String fromViewName, String toViewName, boolean overwrite, List<ViewcopyOperation> viewcopyOperationList, XmlLogLevel xmlLogLevel, List<ViewcopyTarget> targetList, String bindingsFile, BindingsFileFormat bindingsFileFormat)
+    {
+        this(fromViewName, toViewName, overwrite, viewcopyOperationList, xmlLogLevel, targetList, bindingsFile, bindingsFileFormat, false);
+    }
+    
+    /**
+     * Constructor not using a file listing variable bindings.
+     * 
+     * @param fromViewName   a name of a view to be copied from. may contains variable expressions.
+     * @param toViewName     a name of a view to be copied to. may contains variable expressions.
+     * @param overwrite     whether to overwrite if the view to be copied to is already existing.
+     * @param viewcopyOperationList
+     *                      the list of operations to be performed when copying.
+     * @param xmlLogLevel   how much of the configuration XML is logged.
+     * @param targetList    additional views to be copied to.
+     */
+    public ViewcopyBuilder(String fromViewName, String toViewName, boolean overwrite, List<ViewcopyOperation> viewcopyOperationList, XmlLogLevel xmlLogLevel, List<ViewcopyTarget> targetList)
+    {
+        this(fromViewName, toViewName, overwrite, viewcopyOperationList, xmlLogLevel, targetList, null, null);
+    }
+    
+    /**
+     * Constructor copying to a single view.
+     * 
+     * @param fromViewName   a name of a view to be copied from. may contains variable expressions.
+     * @param toViewName     a name of a view to be copied to. may contains variable expressions.
+     * @param overwrite     whether to overwrite if the view to be copied to is already existing.
+     * @param viewcopyOperationList
+     *                      the list of operations to be performed when copying.
+     * @param xmlLogLevel   how much of the configuration XML is logged.
+     */
+    public ViewcopyBuilder(String fromViewName, String toViewName, boolean overwrite, List<ViewcopyOperation> viewcopyOperationList, XmlLogLevel xmlLogLevel)
+    {
+        this(fromViewName, toViewName, overwrite, viewcopyOperationList, xmlLogLevel, null);
+    }
+    
+    /**
+     * Constructor logging the whole configuration XML.
+     * 
+     * @param fromViewName   a name of a view to be copied from. may contains variable expressions.
+     * @param toViewName     a name of a view to be copied to. may contains variable expressions.
+     * @param overwrite     whether to overwrite if the view to be copied to is already existing.
+     * @param viewcopyOperationList
+     *                      the list of operations to be performed when copying.
+     */
+    public ViewcopyBuilder(String fromViewName, String toViewName, boolean overwrite, List<ViewcopyOperation> viewcopyOperationList)
+    {
+        this(fromViewName, toViewName, overwrite, viewcopyOperationList, XmlLogLevel.FULL);
     }
     
     /**
@@ -190,12 +381,42 @@ public class ViewcopyBuilder extends Builder implements Serializable
         EnvVars env = build.getEnvironment(listener);
         PrintStream logger = listener.getLogger();
         
+        // Limit copies running at once on the master.
+        long waited = ViewcopyThrottle.acquire();
+        try
+        {
+            if(waited > 0)
+            {
+                logger.println(String.format("Waited %d ms for other copies to finish", waited));
+            }
+            return performCopy(build, env, logger);
+        }
+        finally
+        {
+            ViewcopyThrottle.release();
+        }
+    }
+    
+    /**
+     * Copies views, within the limit of copies running at once.
+     * 
+     * @param build
+     * @param env       variables defined in the build.
+     * @param logger
+     * @return  whether the process succeeded.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private boolean performCopy(AbstractBuild<?, ?> build, EnvVars env, PrintStream logger)
+        throws IOException, InterruptedException
+    {
         if(StringUtils.isBlank(getFromViewName()))
         {
             logger.println("From View Name is not specified");
             return false;
         }
-        if(StringUtils.isBlank(getToViewName()))
+        List<ViewcopyTarget> targetList = getAllTargetList();
+        if(targetList.isEmpty())
         {
             logger.println("To View Name is not specified");
             return false;
@@ -203,48 +424,418 @@ public class ViewcopyBuilder extends Builder implements Serializable
         
         // Expand the variable expressions in view names.
         String fromViewNameExpanded = env.expand(getFromViewName());
-        String toViewNameExpanded = env.expand(getToViewName());
         
         if(StringUtils.isBlank(fromViewNameExpanded))
         {
             logger.println("From View Name got to a blank");
             return false;
         }
-        if(StringUtils.isBlank(toViewNameExpanded))
+        
+        // Retrieve the view to be copied from.
+        View fromView = ViewIndex.getView(fromViewNameExpanded);
+        
+        if(fromView == null)
         {
-            logger.println("To View Name got to a blank");
+            logger.println("Error: Copying view is not found.");
             return false;
         }
         
-        logger.println(String.format("Copying %s to %s", fromViewNameExpanded, toViewNameExpanded));
+        // The config.xml of the view copied from is fetched
+        // when a view to be copied to needs it first,
+        // and copied for each view to be copied to.
+        SourceDocument sourceDoc = new SourceDocument(fromView, isRecursiveCopy(fromView));
         
-        // Retrieve the view to be copied from.
-        View fromView = Jenkins.getInstance().getView(fromViewNameExpanded);
+        // Jenkins is saved only once after all views are written.
+        ViewWriteBatch batch = new ViewWriteBatch(Jenkins.getInstance());
+        boolean succeeded = false;
+        try
+        {
+            if(!StringUtils.isBlank(getBindingsFile()))
+            {
+                succeeded = copyViewForRows(build, env, logger, fromView, sourceDoc, targetList, batch);
+            }
+            else
+            {
+                succeeded = copyViewToTargets(build, env, logger, fromView, sourceDoc, targetList, true, batch);
+            }
+        }
+        finally
+        {
+            // A failure in saving views must not hide the result of copies,
+            // nor prevent copies performed from being remembered.
+            try
+            {
+                int avoided = batch.commit();
+                if(batch.getWrites() > 1)
+                {
+                    logger.println(String.format("Saved %d views at once (%d saves avoided)", batch.getWrites(), avoided));
+                }
+            }
+            catch(IOException e)
+            {
+                // views are copied, but not saved.
+                logger.println("Failed to save views.");
+                e.printStackTrace(logger);
+                succeeded = false;
+            }
+            finally
+            {
+                try
+                {
+                    ViewcopyMemo.save();
+                }
+                catch(IOException e)
+                {
+                    // only the same copies are not skipped.
+                    logger.println("Failed to save copies performed.");
+                    e.printStackTrace(logger);
+                }
+            }
+        }
+        return succeeded;
+    }
+    
+    /**
+     * Copy a view to views for each row in the file listing variable bindings.
+     * 
+     * Rows are read one by one from the file in the workspace.
+     * A failure in a row does not stop copying views for following rows.
+     * 
+     * @param build
+     * @param env       variables defined in the build.
+     * @param logger
+     * @param fromView  the view to be copied from.
+     * @param sourceDoc the configuration XML document of fromView. Not modified.
+     * @param targetList    views to be copied to.
+     * @param batch     the batch to save views at once.
+     * @return  whether views for all rows are copied.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private boolean copyViewForRows(AbstractBuild<?, ?> build, EnvVars env, PrintStream logger, View fromView, SourceDocument sourceDoc, List<ViewcopyTarget> targetList, ViewWriteBatch batch)
+        throws IOException, InterruptedException
+    {
+        String bindingsFileExpanded = StringUtils.trim(env.expand(getBindingsFile()));
+        if(StringUtils.isBlank(bindingsFileExpanded))
+        {
+            logger.println("Bindings File got to a blank");
+            return false;
+        }
+        if(build.getWorkspace() == null)
+        {
+            logger.println("Workspace is not available");
+            return false;
+        }
+        FilePath file = build.getWorkspace().child(bindingsFileExpanded);
+        if(!file.exists())
+        {
+            logger.println(String.format("Bindings File is not found: %s", bindingsFileExpanded));
+            return false;
+        }
         
-        if(fromView == null)
+        logger.println(String.format("Reading bindings from %s", bindingsFileExpanded));
+        int rows = 0;
+        int failures = 0;
+        long totalStart = System.currentTimeMillis();
+        InputStream in = file.read();
+        try
         {
-            logger.println("Error: Copying view is not found.");
+            BindingsFileFormat.RowReader rowReader
+                = getBindingsFileFormat().open(new InputStreamReader(in, "UTF-8"));
+            while(true)
+            {
+                Map<String, String> row;
+                try
+                {
+                    row = rowReader.next();
+                }
+                catch(MalformedRowException e)
+                {
+                    // the reader skipped the row.
+                    ++rows;
+                    ++failures;
+                    logger.println(String.format("Row %d: failed: %s", rows, e.getMessage()));
+                    continue;
+                }
+                if(row == null)
+                {
+                    break;
+                }
+                ++rows;
+                logger.println(String.format("Row %d: %s", rows, row));
+                long start = System.currentTimeMillis();
+                
+                EnvVars rowEnv = new EnvVars(env);
+                rowEnv.putAll(row);
+                
+                boolean succeeded;
+                try
+                {
+                    succeeded = copyViewToTargets(build, rowEnv, logger, fromView, sourceDoc, targetList, false, batch);
+                }
+                catch(InterruptedException e)
+                {
+                    throw e;
+                }
+                catch(Exception e)
+                {
+                    e.printStackTrace(logger);
+                    succeeded = false;
+                }
+                
+                if(!succeeded)
+                {
+                    ++failures;
+                }
+                logger.println(String.format("Row %d: %s (%d ms)",
+                        rows,
+                        succeeded?"succeeded":"failed",
+                        System.currentTimeMillis() - start
+                ));
+            }
+        }
+        catch(IOException e)
+        {
+            logger.println(String.format("Failed to read %s", bindingsFileExpanded));
+            e.printStackTrace(logger);
             return false;
         }
+        finally
+        {
+            in.close();
+        }
         
+        logger.println(String.format("%d rows processed, %d failed (%d ms)",
+                rows,
+                failures,
+                System.currentTimeMillis() - totalStart
+        ));
+        return (failures == 0);
+    }
+    
+    /**
+     * Copy a view to views.
+     * 
+     * Stops at the first failure.
+     * 
+     * @param build
+     * @param env       variables used when copying.
+     * @param logger
+     * @param fromView  the view to be copied from.
+     * @param sourceDoc the configuration XML document of fromView.
+     * @param targetList    views to be copied to.
+     * @param reuseSourceDoc    whether sourceDoc can be modified for the last view.
+     * @param batch     the batch to save views at once.
+     * @return  whether the process succeeded.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private boolean copyViewToTargets(AbstractBuild<?, ?> build, EnvVars env, PrintStream logger, View fromView, SourceDocument sourceDoc, List<ViewcopyTarget> targetList, boolean reuseSourceDoc, ViewWriteBatch batch)
+        throws IOException, InterruptedException
+    {
+        for(int i = 0; i < targetList.size(); ++i)
+        {
+            ViewcopyTarget target = targetList.get(i);
+            EnvVars targetEnv;
+            try
+            {
+                targetEnv = target.getEnvironment(env);
+            }
+            catch(Exception e)
+            {
+                e.printStackTrace(logger);
+                return false;
+            }
+            
+            // The last one can use the fetched document itself.
+            boolean reuse = (reuseSourceDoc && i >= targetList.size() - 1);
+            if(!copyView(build, targetEnv, logger, fromView, sourceDoc, reuse, target.getToViewName(), batch))
+            {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * The configuration XML document of the view to be copied from.
+     * 
+     * Fetched only when a view to be copied to needs it first,
+     * so that it is never fetched when all views are up to date.
+     */
+    private static class SourceDocument
+    {
+        private final View view;
+        
+        private final boolean tree;
+        
+        private Document doc = null;
+        
+        public SourceDocument(View view, boolean tree)
+        {
+            this.view = view;
+            this.tree = tree;
+        }
+        
+        /**
+         * Returns the document, fetching it if not fetched yet.
+         * 
+         * @param logger
+         * @return  the document. Can be modified only for the last view.
+         * @throws ParserConfigurationException
+         */
+        public Document get(PrintStream logger)
+            throws ParserConfigurationException
+        {
+            if(doc == null)
+            {
+                logger.println(String.format("Fetching configuration of %s...", view.getViewName()));
+                doc = tree
+                        ?ViewTemplateCache.getTreeDocument(view)
+                        :ViewTemplateCache.getDocument(view);
+            }
+            return doc;
+        }
+    }
+    
+    /**
+     * Returns whether to copy views in a view group together.
+     * 
+     * @param fromView  the view to be copied from.
+     * @return  whether to copy views in fromView together.
+     */
+    private boolean isRecursiveCopy(View fromView)
+    {
+        return isRecursive() && fromView instanceof ViewGroup;
+    }
+    
+    /**
+     * Returns all views to be copied to.
+     * 
+     * @return views to be copied to, including {@link #getToViewName()}.
+     */
+    private List<ViewcopyTarget> getAllTargetList()
+    {
+        List<ViewcopyTarget> allTargetList = new ArrayList<ViewcopyTarget>();
+        if(!StringUtils.isBlank(getToViewName()))
+        {
+            allTargetList.add(new ViewcopyTarget(getToViewName(), null));
+        }
+        if(getTargetList() != null)
+        {
+            allTargetList.addAll(getTargetList());
+        }
+        return allTargetList;
+    }
+    
+    /**
+     * Copy a view to another view.
+     * 
+     * @param build
+     * @param env       variables used when copying.
+     * @param logger
+     * @param fromView  the view to be copied from.
+     * @param sourceDoc the configuration XML document of fromView.
+     * @param reuseSourceDoc    whether sourceDoc can be modified. Otherwise it is copied.
+     * @param toViewName    the name of the view to be copied to. may contains variable expressions.
+     * @param batch     the batch to save views at once.
+     * @return  whether the process succeeded.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private boolean copyView(AbstractBuild<?, ?> build, EnvVars env, PrintStream logger, View fromView, SourceDocument sourceDoc, boolean reuseSourceDoc, String toViewName, ViewWriteBatch batch)
+        throws IOException, InterruptedException
+    {
+        String toViewNameExpanded = env.expand(toViewName);
+        if(StringUtils.isBlank(toViewNameExpanded))
+        {
+            logger.println("To View Name got to a blank");
+            return false;
+        }
+        
+        logger.println(String.format("Copying %s to %s", fromView.getViewName(), toViewNameExpanded));
+        
+        // Other builds may copy to the same view at the same time.
+        long waited = ViewTargetLock.lock(toViewNameExpanded);
+        try
+        {
+            if(waited > 0)
+            {
+                logger.println(String.format("Waited %d ms for another copy to %s", waited, toViewNameExpanded));
+            }
+            return copyViewLocked(build, env, logger, fromView, sourceDoc, reuseSourceDoc, toViewNameExpanded, batch);
+        }
+        finally
+        {
+            ViewTargetLock.unlock(toViewNameExpanded);
+        }
+    }
+    
+    /**
+     * Copy a view to another view, holding the lock for the view to be copied to.
+     * 
+     * @param build
+     * @param env       variables used when copying.
+     * @param logger
+     * @param fromView  the view to be copied from.
+     * @param sourceDoc the configuration XML document of fromView.
+     * @param reuseSourceDoc    whether sourceDoc can be modified. Otherwise it is copied.
+     * @param toViewNameExpanded    the name of the view to be copied to.
+     * @param batch     the batch to save views at once.
+     * @return  whether the process succeeded.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private boolean copyViewLocked(AbstractBuild<?, ?> build, EnvVars env, PrintStream logger, View fromView, SourceDocument sourceDoc, boolean reuseSourceDoc, String toViewNameExpanded, ViewWriteBatch batch)
+        throws IOException, InterruptedException
+    {
         // Check whether the view to be copied to is already exists.
-        View toView = Jenkins.getInstance().getView(toViewNameExpanded);
+        View toView = ViewIndex.getView(toViewNameExpanded);
         if(toView != null){
             logger.println(String.format("Already exists: %s", toViewNameExpanded));
             if(!isOverwrite()){
                 return false;
             }
         }
+        else if(ViewIndex.getParentPath(toViewNameExpanded) != null)
+        {
+            // ViewGroup provides no way to add views.
+            logger.println(String.format("Error: Cannot create %s: only views in Jenkins can be created.", toViewNameExpanded));
+            return false;
+        }
         
-        // Create the config.xml of the view copied from.
-        logger.println(String.format("Fetching configuration of %s...", fromViewNameExpanded));
+        // Skip the whole copy if the last copy had the same inputs
+        // and the view is not changed since then.
+        String inputHash = null;
+        if(toView != null)
+        {
+            try
+            {
+                inputHash = getInputHash(env, fromView, toViewNameExpanded);
+                if(inputHash != null
+                        && ViewcopyMemo.isUpToDate(toViewNameExpanded, inputHash, getViewFingerprint(fromView, toView)))
+                {
+                    logger.println(String.format("Up to date: %s", toViewNameExpanded));
+                    build.addAction(new CopiedviewinfoAction(fromView, toView, true));
+                    return true;
+                }
+            }
+            catch(Exception e)
+            {
+                logger.println("Failed to retrieve configuration.");
+                e.printStackTrace(logger);
+                return false;
+            }
+        }
         
         Document doc;
         try
         {
-            doc = getViewConfigXmlDocument(fromView, logger);
+            Document fetched = sourceDoc.get(logger);
+            doc = reuseSourceDoc?fetched:XmlToolkit.copyDocument(fetched);
         }
-        catch (Exception e)
+        catch(Exception e)
         {
             logger.println("Failed to retrieve configuration.");
             e.printStackTrace(logger);
@@ -253,9 +844,7 @@ public class ViewcopyBuilder extends Builder implements Serializable
         
         try
         {
-            String xml = getDocumentXmlString(doc);
-            logger.println("Original xml:");
-            logger.println(xml);
+            logXml(build, logger, "Original xml", doc);
         }
         catch(Exception e)
         {
@@ -264,6 +853,39 @@ public class ViewcopyBuilder extends Builder implements Serializable
             return false;
         }
         
+        if(isRecursiveCopy(fromView))
+        {
+            // Changes are not recorded, as the document is split and assembled again.
+            doc = new ViewTreeTransformer(getViewcopyOperationList(), build.getWorkspace(), env).transform(fromView, doc, logger);
+            if(doc == null)
+            {
+                return false;
+            }
+            return writeView(build, logger, fromView, doc, toView, toViewNameExpanded, inputHash, batch);
+        }
+        
+        FilePath workspace = build.getWorkspace();
+        if(isTransformOnAgent() && workspace != null && workspace.isRemote())
+        {
+            doc = transformOnAgent(build, logger, fromView, doc, workspace, env);
+            if(doc == null)
+            {
+                return false;
+            }
+            return writeView(build, logger, fromView, doc, toView, toViewNameExpanded, inputHash, batch);
+        }
+        
+        // Record changes made by operations.
+        XmlDiffRecorder diffRecorder = null;
+        if(getXmlLogLevel() == XmlLogLevel.DIFF)
+        {
+            diffRecorder = XmlDiffRecorder.start(doc);
+            if(diffRecorder == null)
+            {
+                logger.println("Changes cannot be recorded: the XML implementation does not support mutation events.");
+            }
+        }
+        
         // Apply additional operations to the retrieved XML.
         if(getViewcopyOperationList() != null)
         {
@@ -278,144 +900,371 @@ public class ViewcopyBuilder extends Builder implements Serializable
                     ));
                     return false;
                 }
-                doc = operation.perform(doc, env, logger);
+                doc = operation.perform(doc, build.getWorkspace(), env, logger);
                 if(doc == null)
                 {
                     return false;
                 }
+                if(diffRecorder != null && diffRecorder.getDocument() != doc)
+                {
+                    // the operation replaced the document.
+                    diffRecorder.stop();
+                    diffRecorder.log(logger);
+                    logger.println(String.format("Operation %s replaced the whole document.",
+                            operation.getClass().getName()
+                    ));
+                    diffRecorder = XmlDiffRecorder.start(doc);
+                }
+            }
+        }
+        
+        if(diffRecorder != null)
+        {
+            diffRecorder.stop();
+            diffRecorder.log(logger);
+        }
+        
+        return writeView(build, logger, fromView, doc, toView, toViewNameExpanded, inputHash, batch);
+    }
+    
+    /**
+     * Apply operations on the node the build runs on.
+     * 
+     * @param build
+     * @param logger
+     * @param fromView  the view copied from.
+     * @param doc       the configuration XML document to transform.
+     * @param workspace the workspace on the node.
+     * @param env       variables used when copying.
+     * @return  the transformed document. null if failed.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private Document transformOnAgent(AbstractBuild<?, ?> build, PrintStream logger, View fromView, Document doc, FilePath workspace, EnvVars env)
+        throws IOException, InterruptedException
+    {
+        List<ViewcopyOperation> operationList = getViewcopyOperationList();
+        if(operationList == null || operationList.isEmpty())
+        {
+            return doc;
+        }
+        for(ViewcopyOperation operation: operationList)
+        {
+            if(!operation.isApplicable(fromView.getClass()))
+            {
+                logger.println(String.format("Operation %s cannot be applicable to %s(%s)",
+                        operation.getClass().getName(),
+                        fromView.getViewName(),
+                        fromView.getClass().getName()
+                ));
+                return null;
             }
         }
+        if(getXmlLogLevel() == XmlLogLevel.DIFF)
+        {
+            logger.println("Changes are not recorded when operations are applied on the node.");
+        }
+        
+        long start = System.currentTimeMillis();
+        AgentTransformer.Result result;
+        try
+        {
+            result = workspace.act(new AgentTransformer(
+                    XmlToolkit.toBytes(doc),
+                    new ArrayList<ViewcopyOperation>(operationList),
+                    env
+            ));
+        }
+        catch(TransformerException e)
+        {
+            e.printStackTrace(logger);
+            return null;
+        }
+        logger.print(result.getLog());
+        if(result.getXml() == null)
+        {
+            return null;
+        }
         
+        Document transformed;
         try
         {
-            String xml = getDocumentXmlString(doc);
-            logger.println("Copied xml:");
-            logger.println(xml);
+            transformed = XmlToolkit.parse(result.getXml());
         }
         catch(Exception e)
         {
-            logger.println("Failed to convert the configuration to a string.");
+            logger.println("Failed to parse the configuration transformed on the node.");
             e.printStackTrace(logger);
-            return false;
+            return null;
+        }
+        logger.println(String.format("Applied operations on %s (%d ms)",
+                build.getBuiltOnStr(),
+                System.currentTimeMillis() - start
+        ));
+        return transformed;
+    }
+    
+    /**
+     * Write the copied view.
+     * 
+     * @param build
+     * @param logger
+     * @param fromView  the view copied from.
+     * @param doc       the configuration XML document of the view to write.
+     * @param toView    the view to be overwritten. null to create a new view.
+     * @param toViewNameExpanded    the name of the view to be copied to.
+     * @param inputHash the hash of the inputs of the copy. null not to remember the copy.
+     * @param batch     the batch to save views at once.
+     * @return  whether the process succeeded.
+     * @throws IOException
+     */
+    private boolean writeView(AbstractBuild<?, ?> build, PrintStream logger, View fromView, Document doc, View toView, String toViewNameExpanded, String inputHash, ViewWriteBatch batch)
+        throws IOException
+    {
+        if(toView != null)
+        {
+            // Writing the same configuration only reloads and saves the view.
+            // Compared with the fingerprint of the cached document
+            // not to copy the current configuration.
+            byte[] currentFingerprint;
+            try
+            {
+                currentFingerprint = isRecursiveCopy(fromView)
+                        ?ViewTemplateCache.getTreeFingerprint(toView)
+                        :ViewTemplateCache.getFingerprint(toView);
+            }
+            catch(Exception e)
+            {
+                logger.println("Failed to retrieve configuration.");
+                e.printStackTrace(logger);
+                return false;
+            }
+            if(MessageDigest.isEqual(XmlFingerprint.digest(doc), currentFingerprint))
+            {
+                logger.println(String.format("Unchanged: %s", toViewNameExpanded));
+                build.addAction(new CopiedviewinfoAction(fromView, toView, true));
+                return recordCopy(logger, fromView, toView, toViewNameExpanded, inputHash);
+            }
         }
         
-        InputStream sin;
         try
         {
-            sin = getInputStreamFromDocument(doc);
+            logXml(build, logger, "Copied xml", doc);
         }
         catch(Exception e)
         {
-            logger.println("Failed to create the stream from converted document.");
+            logger.println("Failed to convert the configuration to a string.");
             e.printStackTrace(logger);
             return false;
         }
         
-        if(toView == null)
+        // Saving the view discards only the cached documents of the view.
+        // The view is saved actually when the batch is committed.
+        ViewSaveTracker.beginOwnSave();
+        try
         {
-            logger.println(String.format("Creating %s", toViewNameExpanded));
-            toView = View.createViewFromXML(toViewNameExpanded, sin);
-            Jenkins.getInstance().addView(toView);
+            if(toView == null)
+            {
+                logger.println(String.format("Creating %s", toViewNameExpanded));
+                toView = createViewFromDocument(toViewNameExpanded, doc);
+                Jenkins.getInstance().addView(toView);
+            }
+            else
+            {
+                logger.println(String.format("Updating %s", toViewNameExpanded));
+                toView.updateByXml(new DOMSource(doc));
+            }
+            batch.written();
         }
-        else
+        finally
         {
-            logger.println(String.format("Updating %s", toViewNameExpanded));
-            toView.updateByXml(new StreamSource(sin));
+            ViewSaveTracker.endOwnSave(toView);
         }
         
         // add the information of views copied from and to to the build.
         build.addAction(new CopiedviewinfoAction(fromView, toView));
         
-        return true;
+        return recordCopy(logger, fromView, toView, toViewNameExpanded, inputHash);
     }
     
     /**
-     * Returns the configuration XML document of a view
+     * Remember the copy, to skip the same copy later.
      * 
-     * @param view
      * @param logger
-     * @return
-     * @throws IOException 
-     * @throws SAXException 
-     * @throws ParserConfigurationException 
+     * @param fromView  the view copied from.
+     * @param toView    the view copied to.
+     * @param toViewNameExpanded    the name of the view copied to.
+     * @param inputHash the hash of the inputs of the copy. null not to remember the copy.
+     * @return  whether the process succeeded.
      */
-    private Document getViewConfigXmlDocument(View view, final PrintStream logger)
-            throws IOException, SAXException, ParserConfigurationException
+    private boolean recordCopy(PrintStream logger, View fromView, View toView, String toViewNameExpanded, String inputHash)
     {
-        XStream2 xStream2 = new XStream2(new DomDriver("UTF-8"));
-        xStream2.omitField(View.class, "owner");
-        xStream2.omitField(View.class, "name"); // this field causes disaster when overwriting.
-        
-        PipedOutputStream sout = new PipedOutputStream();
-        PipedInputStream sin = new PipedInputStream(sout);
-        
-        xStream2.toXML(view, sout);
-        sout.close();
-        
-        DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = domFactory.newDocumentBuilder();
-        builder.setErrorHandler(new ErrorHandler(){
-            @Override
-            public void warning(SAXParseException exception)
-                    throws SAXException
-            {
-                exception.printStackTrace(logger);
-            }
-            
-            @Override
-            public void error(SAXParseException exception) throws SAXException
-            {
-                exception.printStackTrace(logger);
-            }
-            
-            @Override
-            public void fatalError(SAXParseException exception)
-                    throws SAXException
+        if(inputHash == null)
+        {
+            return true;
+        }
+        try
+        {
+            ViewcopyMemo.record(toViewNameExpanded, inputHash, getViewFingerprint(fromView, toView));
+        }
+        catch(Exception e)
+        {
+            logger.println("Failed to retrieve configuration.");
+            e.printStackTrace(logger);
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Returns the hash of the inputs of a copy.
+     * 
+     * Inputs are the view copied from and its configuration,
+     * the view copied to, and operations with their values.
+     * 
+     * @param env       variables used when copying.
+     * @param fromView  the view to be copied from.
+     * @param toViewNameExpanded    the name of the view to be copied to.
+     * @return  the hash. null if any of operations cannot tell their results.
+     * @throws ParserConfigurationException
+     */
+    private String getInputHash(EnvVars env, View fromView, String toViewNameExpanded)
+        throws ParserConfigurationException
+    {
+        List<String> inputList = new ArrayList<String>();
+        inputList.add(ViewIndex.getPath(fromView));
+        inputList.add(getViewFingerprint(fromView, fromView));
+        inputList.add(toViewNameExpanded);
+        inputList.add(Boolean.toString(isRecursiveCopy(fromView)));
+        if(getViewcopyOperationList() != null)
+        {
+            for(ViewcopyOperation operation: getViewcopyOperationList())
             {
-                exception.printStackTrace(logger);
+                String key = operation.getMemoKey(env);
+                if(key == null)
+                {
+                    return null;
+                }
+                inputList.add(operation.getClass().getName());
+                inputList.add(key);
             }
-        });
-        return builder.parse(sin);
+        }
+        return ViewcopyMemo.hash(inputList);
     }
     
     /**
-     * Returns a InputStream of a XML document.
+     * Returns the fingerprint of the configuration of a view.
      * 
-     * @param doc
-     * @return
-     * @throws TransformerException
+     * @param fromView  the view to be copied from.
+     * @param view      the view.
+     * @return  the fingerprint in hex.
+     * @throws ParserConfigurationException
+     */
+    private String getViewFingerprint(View fromView, View view)
+        throws ParserConfigurationException
+    {
+        return Util.toHexString(isRecursiveCopy(fromView)
+                ?ViewTemplateCache.getTreeFingerprint(view)
+                :ViewTemplateCache.getFingerprint(view)
+        );
+    }
+    
+    /**
+     * Create a new view from a XML document.
+     * 
+     * Works as {@link View#createViewFromXML(String, java.io.InputStream)},
+     * but unmarshals the view directly from the DOM tree
+     * without writing it out as XML text.
+     * 
+     * The document is modified to hold the name of the view.
+     * 
+     * @param name  the name of the new view.
+     * @param doc   the configuration XML document of the new view.
+     * @return      the new view, not yet added to Jenkins.
      * @throws IOException
      */
-    private InputStream getInputStreamFromDocument(Document doc)
-            throws TransformerException, IOException
+    private View createViewFromDocument(String name, Document doc)
+            throws IOException
     {
-        TransformerFactory tfactory = TransformerFactory.newInstance(); 
-        Transformer transformer = tfactory.newTransformer(); 
-        PipedOutputStream sout = new PipedOutputStream();
-        PipedInputStream sin = new PipedInputStream(sout);
-        transformer.transform(new DOMSource(doc), new StreamResult(sout)); 
-        sout.close();
+        // View.createViewFromXML sets the name after unmarshalling.
+        // the name is omitted in the document, so add it here.
+        Element nameElement = doc.createElement("name");
+        nameElement.setTextContent(name);
+        doc.getDocumentElement().appendChild(nameElement);
         
-        return sin;
+        try
+        {
+            return (View)Jenkins.XSTREAM.unmarshal(new DomReader(doc));
+        }
+        catch(XStreamException e)
+        {
+            throw new IOException("Unable to read", e);
+        }
     }
 
     /**
-     * Returns a XML string representing the passed XML document.
+     * Logs the XML document depending on {@link #getXmlLogLevel()}.
      * 
+     * The document is serialized only when the level requires it,
+     * and written to the log without building the whole string,
+     * encoded in the charset of the build log.
+     * 
+     * @param build
+     * @param logger
+     * @param title     the title of the document.
      * @param doc
-     * @return
      * @throws TransformerException
+     * @throws IOException
      */
-    private String getDocumentXmlString(Document doc) throws TransformerException
+    private void logXml(AbstractBuild<?, ?> build, PrintStream logger, String title, Document doc)
+            throws TransformerException, IOException
     {
-        TransformerFactory tfactory = TransformerFactory.newInstance(); 
-        Transformer transformer = tfactory.newTransformer(); 
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        
-        StringWriter sw = new StringWriter();
-        transformer.transform(new DOMSource(doc), new StreamResult(sw)); 
-        
-        return sw.toString();
+        switch(getXmlLogLevel())
+        {
+        case NONE:
+            break;
+        case DIFF:
+            // changes are logged separately.
+        case SUMMARY:
+            logger.println(String.format("%s: %s (%d elements)",
+                    title,
+                    doc.getDocumentElement().getNodeName(),
+                    doc.getElementsByTagName("*").getLength()
+            ));
+            break;
+        case PREVIEW:
+            {
+                CappedStringWriter writer = new CappedStringWriter(XML_PREVIEW_LENGTH);
+                try
+                {
+                    XmlToolkit.getTransformer(true).transform(new DOMSource(doc), new StreamResult(writer));
+                }
+                catch(TransformerException e)
+                {
+                    if(!writer.isExceeded())
+                    {
+                        throw e;
+                    }
+                }
+                logger.println(String.format("%s:", title));
+                logger.println(writer.toString());
+                if(writer.isExceeded())
+                {
+                    logger.println(String.format("... (truncated to %d characters)", XML_PREVIEW_LENGTH));
+                }
+            }
+            break;
+        case FULL:
+            {
+                logger.println(String.format("%s:", title));
+                Writer writer = new OutputStreamWriter(logger, build.getCharset());
+                XmlToolkit.getTransformer(true).transform(new DOMSource(doc), new StreamResult(writer));
+                // Do not close, as it closes the logger.
+                writer.flush();
+                logger.println();
+            }
+            break;
+        }
     }
     
     /**
@@ -430,6 +1279,173 @@ public class ViewcopyBuilder extends Builder implements Serializable
     @Extension
     public static final class DescriptorImpl extends BuildStepDescriptor<Builder>
     {
+        private int maxConcurrentCopies = 0;
+        
+        /**
+         * Returns the maximum number of copies running at once on the master.
+         * 
+         * @return the maximum number of copies. 0 for no limit.
+         */
+        public int getMaxConcurrentCopies()
+        {
+            return maxConcurrentCopies;
+        }
+        
+        /**
+         * Sets the maximum number of copies running at once on the master.
+         * 
+         * @param maxConcurrentCopies   the maximum number of copies. 0 or less for no limit.
+         */
+        public void setMaxConcurrentCopies(int maxConcurrentCopies)
+        {
+            this.maxConcurrentCopies = Math.max(0, maxConcurrentCopies);
+            ViewcopyThrottle.setLimit(this.maxConcurrentCopies);
+        }
+        
+        /**
+         * Returns the number of copies running now.
+         * 
+         * Displayed in the system configuration page.
+         * 
+         * @return the number of copies running now.
+         * @see ViewcopyThrottle#getRunning()
+         */
+        public int getCopiesRunning()
+        {
+            return ViewcopyThrottle.getRunning();
+        }
+        
+        /**
+         * Returns the number of copies waiting for other copies to finish.
+         * 
+         * Displayed in the system configuration page.
+         * 
+         * @return the number of copies waiting now.
+         * @see ViewcopyThrottle#getQueueDepth()
+         */
+        public int getCopiesQueued()
+        {
+            return ViewcopyThrottle.getQueueDepth();
+        }
+        
+        /**
+         * Returns the number of copies waited for other copies to finish since started.
+         * 
+         * Displayed in the system configuration page.
+         * 
+         * @return the number of copies waited.
+         * @see ViewcopyThrottle#getTotalWaited()
+         */
+        public long getCopiesWaited()
+        {
+            return ViewcopyThrottle.getTotalWaited();
+        }
+        
+        /**
+         * Returns the total time copies waited for other copies to finish since started.
+         * 
+         * Displayed in the system configuration page.
+         * 
+         * @return the total time in milliseconds.
+         * @see ViewcopyThrottle#getTotalWaitMillis()
+         */
+        public long getCopiesWaitMillis()
+        {
+            return ViewcopyThrottle.getTotalWaitMillis();
+        }
+        
+        /**
+         * Returns the number of views locked to be copied to since started.
+         * 
+         * Displayed in the system configuration page.
+         * 
+         * @return the number of locks acquired.
+         * @see ViewTargetLock#getTotalAcquired()
+         */
+        public long getTargetsLocked()
+        {
+            return ViewTargetLock.getTotalAcquired();
+        }
+        
+        /**
+         * Returns the number of views locked after waiting for another copy to them since started.
+         * 
+         * Displayed in the system configuration page.
+         * 
+         * @return the number of locks acquired after waiting.
+         * @see ViewTargetLock#getTotalContended()
+         */
+        public long getTargetsContended()
+        {
+            return ViewTargetLock.getTotalContended();
+        }
+        
+        /**
+         * Returns the total time waited for other copies to the same views since started.
+         * 
+         * Displayed in the system configuration page.
+         * 
+         * @return the total time in milliseconds.
+         * @see ViewTargetLock#getTotalWaitMillis()
+         */
+        public long getTargetsWaitMillis()
+        {
+            return ViewTargetLock.getTotalWaitMillis();
+        }
+        
+        /**
+         * Load the system configuration.
+         */
+        public DescriptorImpl()
+        {
+            load();
+            ViewcopyThrottle.setLimit(getMaxConcurrentCopies());
+        }
+        
+        /**
+         * Save the system configuration.
+         * 
+         * @param req
+         * @param json
+         * @return true
+         * @throws FormException
+         * @see hudson.model.Descriptor#configure(org.kohsuke.stapler.StaplerRequest, net.sf.json.JSONObject)
+         */
+        @Override
+        public boolean configure(StaplerRequest req, JSONObject json) throws FormException
+        {
+            setMaxConcurrentCopies(json.optInt("maxConcurrentCopies", 0));
+            save();
+            return true;
+        }
+        
+        /**
+         * Validate "Maximum Concurrent Copies" field.
+         * 
+         * @param maxConcurrentCopies
+         * @return FormValidation object.
+         */
+        public FormValidation doCheckMaxConcurrentCopies(@QueryParameter String maxConcurrentCopies)
+        {
+            maxConcurrentCopies = StringUtils.trim(maxConcurrentCopies);
+            if(StringUtils.isEmpty(maxConcurrentCopies))
+            {
+                return FormValidation.ok();
+            }
+            try
+            {
+                if(Integer.parseInt(maxConcurrentCopies) >= 0)
+                {
+                    return FormValidation.ok();
+                }
+            }
+            catch(NumberFormatException e)
+            {
+                // fall through.
+            }
+            return FormValidation.error(Messages.ViewcopyBuilder_MaxConcurrentCopies_invalid());
+        }
+        
         /**
          * Returns the display name
          * 
@@ -473,24 +1489,57 @@ public class ViewcopyBuilder extends Builder implements Serializable
         }
         
         /**
-         * Returns the list of views.
+         * The maximum number of views listed for the autocomplete.
+         */
+        private static final int MAX_VIEW_NAME_CANDIDATES = 100;
+        
+        /**
+         * Returns candidates for the autocomplete of From View Name.
          * 
-         * Used for the autocomplete of From View Name.
+         * Called each time the input changes.
+         * Paths of views starting with the input come first,
+         * followed by ones containing it, up to {@link #MAX_VIEW_NAME_CANDIDATES}.
          * 
-         * @return the list of views
+         * @param value the input. May be null.
+         * @return the candidates
          */
-        public ComboBoxModel doFillFromViewNameItems()
+        public AutoCompletionCandidates doAutoCompleteFromViewName(@QueryParameter String value)
         {
-            ComboBoxModel ret = FixedComboBoxModel.createComboBoxModel();
-            for(View view: Jenkins.getInstance().getViews())
+            AutoCompletionCandidates ret = new AutoCompletionCandidates();
+            for(String path: ViewIndex.findPaths(StringUtils.trim(value), MAX_VIEW_NAME_CANDIDATES))
             {
-                if(view instanceof AllView)
-                {
-                    continue;
-                }
-                ret.add(view.getViewName());
+                ret.add(path);
+            }
+            return ret;
+        }
+        
+        /**
+         * Returns the choices of how much of the configuration XML is logged.
+         * 
+         * @return the choices of XmlLogLevel
+         */
+        public ListBoxModel doFillXmlLogLevelItems()
+        {
+            ListBoxModel ret = new ListBoxModel();
+            for(XmlLogLevel level: XmlLogLevel.values())
+            {
+                ret.add(level.getDisplayName(), level.name());
+            }
+            return ret;
+        }
+        
+        /**
+         * Returns the choices of the format of the file listing variable bindings.
+         * 
+         * @return the choices of BindingsFileFormat
+         */
+        public ListBoxModel doFillBindingsFileFormatItems()
+        {
+            ListBoxModel ret = new ListBoxModel();
+            for(BindingsFileFormat format: BindingsFileFormat.values())
+            {
+                ret.add(format.getDisplayName(), format.name());
             }
-            
             return ret;
         }
         
@@ -577,7 +1626,7 @@ public class ViewcopyBuilder extends Builder implements Serializable
                 return FormValidation.ok();
             }
             
-            View view = Jenkins.getInstance().getView(viewName);
+            View view = ViewIndex.getView(viewName);
             if(view != null)
             {
                 // view exists
@@ -618,6 +1667,13 @@ public class ViewcopyBuilder extends Builder implements Serializable
          */
         public FormValidation doCheckToViewName(@QueryParameter String toViewName, @QueryParameter boolean overwrite)
         {
+            String viewName = StringUtils.trim(toViewName);
+            if(!StringUtils.isBlank(viewName) && !containsVariable(viewName)
+                    && ViewIndex.getParentPath(viewName) != null
+                    && ViewIndex.getView(viewName) == null)
+            {
+                return FormValidation.warning(Messages.ViewcopyBuilder_ToViewName_cannotCreate());
+            }
             return doCheckViewName(toViewName, !overwrite, false);
         }
     }
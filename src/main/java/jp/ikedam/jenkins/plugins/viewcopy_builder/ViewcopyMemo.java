@@ -0,0 +1,240 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.model.Jenkins;
+
+import hudson.Util;
+import hudson.XmlFile;
+
+/**
+ * Remembers inputs of copies, to skip copying views when nothing is changed.
+ * 
+ * For each view copied to, holds the hash of the inputs of the last copy
+ * (the view copied from, the names, and operations with their values)
+ * and the fingerprint of the view just after the copy.
+ * When both are the same, copying again results in the same view,
+ * and fetching, transforming and writing the view can be skipped.
+ * 
+ * Stored in JENKINS_HOME, so that it survives restarts.
+ */
+public class ViewcopyMemo
+{
+    private static final Logger LOGGER = Logger.getLogger(ViewcopyMemo.class.getName());
+    
+    /**
+     * The number of views remembered.
+     */
+    private static final int MAX_ENTRIES = 1024;
+    
+    /**
+     * The inputs and the result of a copy.
+     */
+    public static class Entry
+    {
+        private final String inputHash;
+        
+        private final String fingerprint;
+        
+        public Entry(String inputHash, String fingerprint)
+        {
+            this.inputHash = inputHash;
+            this.fingerprint = fingerprint;
+        }
+    }
+    
+    /**
+     * Entries keyed by the paths of views copied to. null if not loaded yet.
+     * 
+     * Accesses must be synchronized with the lock of this class.
+     */
+    private static LruCache<String, Entry> entries = null;
+    
+    /**
+     * The file entries are loaded from, and stored to.
+     */
+    private static XmlFile file = null;
+    
+    /**
+     * Whether entries are modified since saved.
+     */
+    private static boolean dirty = false;
+    
+    private ViewcopyMemo()
+    {
+    }
+    
+    /**
+     * Loads entries from the file in JENKINS_HOME, discarding entries in memory.
+     * 
+     * Called when Jenkins is started, by {@link ViewSaveTracker#onLoaded()}.
+     */
+    static synchronized void load()
+    {
+        file = new XmlFile(Jenkins.XSTREAM, new File(Jenkins.getInstance().getRootDir(), ViewcopyMemo.class.getName() + ".xml"));
+        entries = new LruCache<String, Entry>(MAX_ENTRIES);
+        dirty = false;
+        if(file.exists())
+        {
+            try
+            {
+                // stored from the least recently used one.
+                @SuppressWarnings("unchecked")
+                Map<String, Entry> stored = (Map<String, Entry>)file.read();
+                entries.putAll(stored);
+            }
+            catch(Exception e)
+            {
+                // only copies are not skipped.
+                LOGGER.log(Level.WARNING, String.format("Failed to load %s", file), e);
+            }
+        }
+    }
+    
+    /**
+     * Returns entries, loading them if not loaded yet.
+     * 
+     * Must be called with the lock of this class.
+     * 
+     * @return entries.
+     */
+    private static LruCache<String, Entry> getEntries()
+    {
+        if(entries == null)
+        {
+            load();
+        }
+        return entries;
+    }
+    
+    /**
+     * Returns whether copying to a view results in the same view as it is now.
+     * 
+     * @param path          the path of the view copied to.
+     * @param inputHash     the hash of the inputs of the copy.
+     * @param fingerprint   the current fingerprint of the view copied to.
+     * @return  whether the last copy to the view had the same inputs,
+     *          and the view is not changed since then.
+     */
+    public static synchronized boolean isUpToDate(String path, String inputHash, String fingerprint)
+    {
+        Entry entry = getEntries().get(path);
+        return (entry != null
+                && inputHash.equals(entry.inputHash)
+                && fingerprint.equals(entry.fingerprint)
+        );
+    }
+    
+    /**
+     * Remembers a copy.
+     * 
+     * @param path          the path of the view copied to.
+     * @param inputHash     the hash of the inputs of the copy.
+     * @param fingerprint   the fingerprint of the view after the copy.
+     */
+    public static synchronized void record(String path, String inputHash, String fingerprint)
+    {
+        getEntries().put(path, new Entry(inputHash, fingerprint));
+        dirty = true;
+    }
+    
+    /**
+     * Stores entries to the file, if modified.
+     * 
+     * @throws IOException
+     */
+    public static synchronized void save()
+        throws IOException
+    {
+        if(!dirty)
+        {
+            return;
+        }
+        // LruCache cannot be restored with XStream.
+        file.write(new LinkedHashMap<String, Entry>(getEntries()));
+        dirty = false;
+    }
+    
+    /**
+     * Returns the hash of inputs.
+     * 
+     * Values are prefixed with their lengths,
+     * so that different values never result in the same hash.
+     * 
+     * @param inputList the inputs. may contain null.
+     * @return  the hash in hex.
+     */
+    public static String hash(List<String> inputList)
+    {
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-256");
+            digest.update(join(inputList).getBytes("UTF-8"));
+        }
+        catch(NoSuchAlgorithmException e)
+        {
+            // SHA-256 is always supported.
+            throw new IllegalStateException(e);
+        }
+        catch(UnsupportedEncodingException e)
+        {
+            // UTF-8 is always supported.
+            throw new IllegalStateException(e);
+        }
+        return Util.toHexString(digest.digest());
+    }
+    
+    /**
+     * Joins values, prefixing each value with its length.
+     * 
+     * @param valueList the values. may contain null.
+     * @return  the joined string.
+     */
+    public static String join(List<String> valueList)
+    {
+        StringBuilder sb = new StringBuilder();
+        for(String value: valueList)
+        {
+            if(value == null)
+            {
+                sb.append("-:");
+                continue;
+            }
+            sb.append(value.length()).append(':').append(value);
+        }
+        return sb.toString();
+    }
+}
@@ -25,6 +25,9 @@ package jp.ikedam.jenkins.plugins.viewcopy_builder;
 
 import java.io.PrintStream;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
@@ -35,12 +38,12 @@ import javax.xml.xpath.XPathFactory;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-import org.w3c.dom.Text;
 
 
 
 import hudson.EnvVars;
 import hudson.ExtensionPoint;
+import hudson.FilePath;
 import hudson.DescriptorExtensionList;
 import hudson.model.Descriptor;
 import hudson.model.View;
@@ -53,7 +56,8 @@ import jenkins.model.Jenkins;
  * A new additional operation can be defined in following steps:
  * <ol>
  *    <li>Define a new class derived from ViewcopyOperation.</li>
- *    <li>Override {@link ViewcopyOperation#perform(Document, EnvVars, PrintStream)}</li>
+ *    <li>Override {@link ViewcopyOperation#perform(Document, EnvVars, PrintStream)}
+ *        (and {@link ViewcopyOperation#perform(Document, FilePath, EnvVars, PrintStream)} to use files in the workspace)</li>
  *    <li>Define the internal public static class named DescriptorImpl, derived from Descriptor&lt;ViewcopyOperation&gt;</li>
  *    <li>annotate the DescriptorImpl with Extension</li>
  * </ol>
@@ -62,6 +66,70 @@ public abstract class ViewcopyOperation extends AbstractDescribableImpl<Viewcopy
 {
     private static final long serialVersionUID = -166190124086838742L;
     
+    /**
+     * The number of compiled XPath expressions held for each thread.
+     */
+    private static final int XPATH_CACHE_SIZE = 64;
+    
+    /**
+     * The number of compiled regular expressions held.
+     */
+    private static final int PATTERN_CACHE_SIZE = 64;
+    
+    /**
+     * Compiled regular expressions, keyed by the expanded expression.
+     * 
+     * Pattern is thread-safe, so they are shared among concurrent builds.
+     * Accesses must be synchronized with this object.
+     */
+    private static final LruCache<String, Pattern> PATTERN_CACHE
+        = new LruCache<String, Pattern>(PATTERN_CACHE_SIZE);
+    
+    /**
+     * Compiled XPath expressions held for each thread.
+     * 
+     * XPathFactory, XPath and XPathExpression are not thread-safe,
+     * so they cannot be shared among concurrent builds.
+     */
+    private static final ThreadLocal<XPathCache> XPATH_CACHE = new ThreadLocal<XPathCache>()
+    {
+        @Override
+        protected XPathCache initialValue()
+        {
+            return new XPathCache();
+        }
+    };
+    
+    /**
+     * Holds XPath and expressions compiled with it.
+     */
+    private static class XPathCache
+    {
+        private final XPath xpath = XPathFactory.newInstance().newXPath();
+        
+        private final LruCache<String, XPathExpression> expressionMap
+            = new LruCache<String, XPathExpression>(XPATH_CACHE_SIZE);
+        
+        /**
+         * Returns the compiled expression, compiling it if not compiled yet.
+         * 
+         * @param xpathExpression   a XPath expression.
+         * @return                  the compiled expression.
+         * @throws XPathExpressionException
+         */
+        public XPathExpression compile(String xpathExpression)
+            throws XPathExpressionException
+        {
+            XPathExpression expr = expressionMap.get(xpathExpression);
+            if(expr == null)
+            {
+                expr = xpath.compile(xpathExpression);
+                expressionMap.put(xpathExpression, expr);
+            }
+            return expr;
+        }
+    }
+    
     /**
      * Return modified XML document of the view configuration.
      * 
@@ -72,6 +140,53 @@ public abstract class ViewcopyOperation extends AbstractDescribableImpl<Viewcopy
      */
     public abstract Document perform(Document doc, EnvVars env, PrintStream logger);
     
+    /**
+     * Return modified XML document of the view configuration, with the workspace of the build.
+     * 
+     * Override this to use files in the workspace.
+     * By default, calls {@link #perform(Document, EnvVars, PrintStream)}.
+     * 
+     * @param doc       the XML document of the view to be copied (a part of system config.xml)
+     * @param workspace the workspace of the build. null if not available.
+     * @param env       Variables defined in the build.
+     * @param logger    The output stream to log.
+     * @return          modified XML string. Return null if an error occurs.
+     */
+    public Document perform(Document doc, FilePath workspace, EnvVars env, PrintStream logger)
+    {
+        return perform(doc, env, logger);
+    }
+    
+    /**
+     * Returns a key identifying how this operation modifies documents with the variables.
+     * 
+     * Copying a view is skipped when the last copy to the same view
+     * was performed with operations returning the same keys,
+     * and the view is not changed since then.
+     * Operations returning the same key must modify documents in the same way.
+     * 
+     * By default, returns null, which means the result cannot be identified
+     * (e.g. it depends on files in the workspace) and views are always copied.
+     * 
+     * @param env   Variables defined in the build.
+     * @return      the key. null if the result cannot be identified.
+     */
+    public String getMemoKey(EnvVars env)
+    {
+        return null;
+    }
+    
+    /**
+     * Joins values into a key returned from {@link #getMemoKey(EnvVars)}.
+     * 
+     * @param values    the values. may contain null.
+     * @return          the key. Different values never result in the same key.
+     */
+    protected static String joinMemoKey(String... values)
+    {
+        return ViewcopyMemo.join(Arrays.asList(values));
+    }
+    
     /**
      * Return all the available ViewcopyOperation whose DescriptorImpl annotated with Extension.
      * 
@@ -122,13 +237,91 @@ public abstract class ViewcopyOperation extends AbstractDescribableImpl<Viewcopy
     protected NodeList getNodeList(Document doc, String xpathExpression)
         throws XPathExpressionException
     {
-        XPathFactory factory = XPathFactory.newInstance();
-        XPath xpath = factory.newXPath();
-        XPathExpression expr = xpath.compile(xpathExpression);
+        XPathExpression expr = getXPathExpression(xpathExpression);
         
         return (NodeList)expr.evaluate(doc, XPathConstants.NODESET);
     }
     
+    /**
+     * Retrieve a compiled regular expression.
+     * 
+     * Compiled expressions are cached and shared among builds,
+     * so the same expression is not compiled again in repeated builds.
+     * 
+     * @param regex     a regular expression.
+     * @return          the compiled expression.
+     * @throws PatternSyntaxException   regex is not a valid regular expression.
+     */
+    protected static Pattern getPattern(String regex)
+        throws PatternSyntaxException
+    {
+        synchronized(PATTERN_CACHE)
+        {
+            Pattern pattern = PATTERN_CACHE.get(regex);
+            if(pattern != null)
+            {
+                return pattern;
+            }
+        }
+        
+        // Compile outside the lock not to block other builds.
+        Pattern pattern = Pattern.compile(regex);
+        synchronized(PATTERN_CACHE)
+        {
+            PATTERN_CACHE.put(regex, pattern);
+        }
+        return pattern;
+    }
+    
+    /**
+     * Retrieve a compiled XPath expression.
+     * 
+     * Compiled expressions are cached for each thread,
+     * so the returned object must be used only in the current thread.
+     * 
+     * @param xpathExpression   a XPath expression.
+     * @return                  the compiled expression.
+     * @throws XPathExpressionException
+     */
+    protected XPathExpression getXPathExpression(String xpathExpression)
+        throws XPathExpressionException
+    {
+        return XPATH_CACHE.get().compile(xpathExpression);
+    }
+    
+    /**
+     * Replace strings in all text nodes.
+     * 
+     * Only applied to strings in text nodes, so the XML structure is never destroyed.
+     * Nodes are scanned only once however many strings are replaced.
+     * 
+     * @param doc       the XML Document object.
+     * @param replacer  strings to replace.
+     * @return          the number of modified text nodes.
+     * @throws XPathExpressionException
+     */
+    protected int replaceTextNodes(Document doc, MultiStringReplacer replacer)
+        throws XPathExpressionException
+    {
+        int modified = 0;
+        NodeList textNodeList = getNodeList(doc, "//text()");
+        
+        // NodeList does not implement Collection, and foreach is not usable.
+        for(int i = 0; i < textNodeList.getLength(); ++i)
+        {
+            Node node = textNodeList.item(i);
+            String value = node.getNodeValue();
+            String replaced = replacer.replace(value);
+            if(replaced != value)
+            {
+                node.setNodeValue(replaced);
+                ++modified;
+            }
+        }
+        
+        return modified;
+    }
+    
     /**
      * Retrieve a XPath expression of a node.
      * 
@@ -142,21 +335,7 @@ public abstract class ViewcopyOperation extends AbstractDescribableImpl<Viewcopy
      */
     protected String getXpath(Node targetNode)
     {
-        StringBuilder pathBuilder = new StringBuilder();
-        for(Node node = targetNode; node != null && !(node instanceof Document); node = node.getParentNode())
-        {
-            if(node instanceof Text)
-            {
-                pathBuilder.insert(0, "text()");
-                pathBuilder.insert(0, '/');
-            }
-            else
-            {
-                pathBuilder.insert(0, node.getNodeName());
-                pathBuilder.insert(0, '/');
-            }
-        }
-        return pathBuilder.toString();
+        return XmlToolkit.getXpath(targetNode, false);
     }
     
     /**
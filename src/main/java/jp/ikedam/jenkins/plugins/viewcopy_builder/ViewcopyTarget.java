@@ -0,0 +1,152 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.StringReader;
+import java.util.Properties;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * A view to be copied to, with variables used only when copying to it.
+ * 
+ * Used to copy a view to many views in a single build step.
+ */
+public class ViewcopyTarget extends AbstractDescribableImpl<ViewcopyTarget> implements Serializable
+{
+    private static final long serialVersionUID = 7405623418245176510L;
+    
+    /**
+     * The internal class to work with views.
+     * 
+     * The following files are used (put in main/resource directory in the source tree).
+     * <dl>
+     *     <dt>config.jelly</dt>
+     *         <dd>shown in the job configuration page, as a part of a Viewcopy build step.</dd>
+     * </dl>
+     */
+    @Extension
+    public static class DescriptorImpl extends Descriptor<ViewcopyTarget>
+    {
+        /**
+         * Returns the string to be shown in a job configuration page.
+         * 
+         * @return the display name
+         * @see hudson.model.Descriptor#getDisplayName()
+         */
+        @Override
+        public String getDisplayName()
+        {
+            return Messages.ViewcopyTarget_DisplayName();
+        }
+    }
+    
+    private String toViewName;
+    
+    /**
+     * Returns the name of view to be copied to.
+     * 
+     * Variable expressions will be expanded, including ones defined in bindings.
+     * 
+     * @return the name of view to be copied to
+     */
+    public String getToViewName()
+    {
+        return toViewName;
+    }
+    
+    private String bindings;
+    
+    /**
+     * Returns variables used when copying to this view.
+     * 
+     * Written in the properties format (NAME=value in each line).
+     * Values may contain variable expressions of the build.
+     * 
+     * @return variables used when copying to this view
+     */
+    public String getBindings()
+    {
+        return bindings;
+    }
+    
+    /**
+     * Constructor to instantiate from parameters in the job configuration page.
+     * 
+     * When instantiating from the saved configuration,
+     * the object is directly serialized with XStream,
+     * and no constructor is used.
+     * 
+     * @param toViewName    a name of a view to be copied to. may contains variable expressions.
+     * @param bindings      variables used when copying to the view, in the properties format.
+     */
+    @DataBoundConstructor
+    public ViewcopyTarget(String toViewName, String bindings)
+    {
+        this.toViewName = StringUtils.trim(toViewName);
+        this.bindings = bindings;
+    }
+    
+    /**
+     * Returns variables used when copying to this view.
+     * 
+     * @param env   variables defined in the build.
+     * @return      variables of the build overridden with bindings.
+     *              env itself if no bindings are defined.
+     * @throws IOException  bindings are malformed.
+     */
+    public EnvVars getEnvironment(EnvVars env)
+        throws IOException
+    {
+        if(StringUtils.isBlank(getBindings()))
+        {
+            return env;
+        }
+        
+        Properties props = new Properties();
+        try
+        {
+            props.load(new StringReader(getBindings()));
+        }
+        catch(IllegalArgumentException e)
+        {
+            throw new IOException(String.format("Malformed bindings for %s", getToViewName()), e);
+        }
+        
+        EnvVars targetEnv = new EnvVars(env);
+        for(String name: props.stringPropertyNames())
+        {
+            targetEnv.put(name, env.expand(props.getProperty(name)));
+        }
+        return targetEnv;
+    }
+}
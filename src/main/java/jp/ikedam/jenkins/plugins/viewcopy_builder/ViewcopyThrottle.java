@@ -0,0 +1,247 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of copies running at the same time on the master.
+ * 
+ * Copies serialize and parse configuration XMLs of views,
+ * and many copies running at once cause long GC pauses.
+ * Copies exceeding the limit wait in the order they arrived.
+ * 
+ * The limit is configured in the system configuration page,
+ * and set by {@link ViewcopyBuilder.DescriptorImpl}.
+ */
+public class ViewcopyThrottle
+{
+    private static final ReentrantLock LOCK = new ReentrantLock(true);
+    
+    /**
+     * Signaled when a copy finishes or the limit changes.
+     */
+    private static final Condition CHANGED = LOCK.newCondition();
+    
+    /**
+     * Tickets of waiting copies, in the order they arrived. Guarded by {@link #LOCK}.
+     */
+    private static final LinkedList<Object> QUEUE = new LinkedList<Object>();
+    
+    /**
+     * The number of copies running. Guarded by {@link #LOCK}.
+     */
+    private static int running = 0;
+    
+    /**
+     * The maximum number of copies running at once. 0 for no limit. Guarded by {@link #LOCK}.
+     */
+    private static int limit = 0;
+    
+    /**
+     * The number of copies that waited since Jenkins started.
+     */
+    private static final AtomicLong TOTAL_WAITED = new AtomicLong();
+    
+    /**
+     * The total time copies waited, in milliseconds.
+     */
+    private static final AtomicLong TOTAL_WAIT_MILLIS = new AtomicLong();
+    
+    private ViewcopyThrottle()
+    {
+    }
+    
+    /**
+     * Sets the maximum number of copies running at once.
+     * 
+     * @param limit the maximum number of copies. 0 or less for no limit.
+     */
+    public static void setLimit(int limit)
+    {
+        LOCK.lock();
+        try
+        {
+            ViewcopyThrottle.limit = Math.max(0, limit);
+            CHANGED.signalAll();
+        }
+        finally
+        {
+            LOCK.unlock();
+        }
+    }
+    
+    /**
+     * Returns the maximum number of copies running at once.
+     * 
+     * @return the maximum number of copies. 0 for no limit.
+     */
+    public static int getLimit()
+    {
+        LOCK.lock();
+        try
+        {
+            return limit;
+        }
+        finally
+        {
+            LOCK.unlock();
+        }
+    }
+    
+    /**
+     * Returns the number of copies running.
+     * 
+     * @return the number of copies running.
+     */
+    public static int getRunning()
+    {
+        LOCK.lock();
+        try
+        {
+            return running;
+        }
+        finally
+        {
+            LOCK.unlock();
+        }
+    }
+    
+    /**
+     * Returns the number of copies waiting.
+     * 
+     * @return the number of copies waiting.
+     */
+    public static int getQueueDepth()
+    {
+        LOCK.lock();
+        try
+        {
+            return QUEUE.size();
+        }
+        finally
+        {
+            LOCK.unlock();
+        }
+    }
+    
+    /**
+     * Returns the number of copies that waited since Jenkins started.
+     * 
+     * @return the number of copies that waited.
+     */
+    public static long getTotalWaited()
+    {
+        return TOTAL_WAITED.get();
+    }
+    
+    /**
+     * Returns the total time copies waited since Jenkins started.
+     * 
+     * @return the time waited in milliseconds.
+     */
+    public static long getTotalWaitMillis()
+    {
+        return TOTAL_WAIT_MILLIS.get();
+    }
+    
+    /**
+     * Whether a copy can start now. Must be called with {@link #LOCK}.
+     * 
+     * @return whether the number of running copies is under the limit.
+     */
+    private static boolean isAvailable()
+    {
+        return limit <= 0 || running < limit;
+    }
+    
+    /**
+     * Waits until the copy can start.
+     * 
+     * Always call {@link #release()} in finally.
+     * 
+     * @return the time waited in milliseconds.
+     * @throws InterruptedException the build is aborted while waiting.
+     */
+    public static long acquire() throws InterruptedException
+    {
+        LOCK.lockInterruptibly();
+        try
+        {
+            if(QUEUE.isEmpty() && isAvailable())
+            {
+                ++running;
+                return 0;
+            }
+            
+            Object ticket = new Object();
+            QUEUE.add(ticket);
+            long start = System.nanoTime();
+            try
+            {
+                while(QUEUE.getFirst() != ticket || !isAvailable())
+                {
+                    CHANGED.await();
+                }
+            }
+            finally
+            {
+                QUEUE.remove(ticket);
+                // the next copy may also start.
+                CHANGED.signalAll();
+            }
+            ++running;
+            
+            long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            TOTAL_WAITED.incrementAndGet();
+            TOTAL_WAIT_MILLIS.addAndGet(waited);
+            return waited;
+        }
+        finally
+        {
+            LOCK.unlock();
+        }
+    }
+    
+    /**
+     * Called when the copy finishes.
+     */
+    public static void release()
+    {
+        LOCK.lock();
+        try
+        {
+            --running;
+            CHANGED.signalAll();
+        }
+        finally
+        {
+            LOCK.unlock();
+        }
+    }
+}
@@ -0,0 +1,397 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.events.Event;
+import org.w3c.dom.events.EventListener;
+import org.w3c.dom.events.EventTarget;
+import org.w3c.dom.events.MutationEvent;
+
+/**
+ * Records changes made to a XML document, using DOM mutation events.
+ * 
+ * Changes are recorded while operations modify the document,
+ * so the document need not be compared with the original one afterwards.
+ * Several changes to the same node are recorded as one change.
+ */
+public class XmlDiffRecorder implements EventListener
+{
+    /**
+     * The maximum number of characters of a value to log.
+     */
+    private static final int MAX_VALUE_LENGTH = 200;
+    
+    private static final String[] EVENT_TYPES = {
+        "DOMCharacterDataModified",
+        "DOMAttrModified",
+        "DOMNodeInserted",
+        "DOMNodeRemoved",
+    };
+    
+    private static enum ChangeType
+    {
+        ADDED,
+        REMOVED,
+        MODIFIED,
+    }
+    
+    /**
+     * A change to a node.
+     */
+    private static class Change
+    {
+        public final ChangeType type;
+        /**
+         * XPath of the node when removed. null for others,
+         * as the path is calculated when logging.
+         */
+        public final String xpath;
+        public final String oldValue;
+        
+        public Change(ChangeType type, String xpath, String oldValue)
+        {
+            this.type = type;
+            this.xpath = xpath;
+            this.oldValue = oldValue;
+        }
+    }
+    
+    private final Document doc;
+    
+    /**
+     * Changes in the order they are made first.
+     * 
+     * DOM nodes do not override equals, and are compared by identity.
+     */
+    private final Map<Node, Change> changeMap = new LinkedHashMap<Node, Change>();
+    
+    /**
+     * Nodes recorded as added, to tell whether a node is in an added node
+     * only with looking up its ancestors.
+     */
+    private final Set<Node> addedNodes = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+    
+    /**
+     * Returns the document whose changes are recorded.
+     * 
+     * @return the document whose changes are recorded.
+     */
+    public Document getDocument()
+    {
+        return doc;
+    }
+    
+    private XmlDiffRecorder(Document doc)
+    {
+        this.doc = doc;
+    }
+    
+    /**
+     * Starts to record changes made to a document.
+     * 
+     * @param doc   the document to record changes.
+     * @return      the recorder. null if the document does not support mutation events.
+     */
+    public static XmlDiffRecorder start(Document doc)
+    {
+        if(!(doc instanceof EventTarget))
+        {
+            return null;
+        }
+        XmlDiffRecorder recorder = new XmlDiffRecorder(doc);
+        for(String type: EVENT_TYPES)
+        {
+            ((EventTarget)doc).addEventListener(type, recorder, true);
+        }
+        return recorder;
+    }
+    
+    /**
+     * Stops recording changes.
+     */
+    public void stop()
+    {
+        for(String type: EVENT_TYPES)
+        {
+            ((EventTarget)doc).removeEventListener(type, this, true);
+        }
+    }
+    
+    /**
+     * Records a mutation event.
+     * 
+     * @param evt
+     * @see org.w3c.dom.events.EventListener#handleEvent(org.w3c.dom.events.Event)
+     */
+    @Override
+    public void handleEvent(Event evt)
+    {
+        if(!(evt instanceof MutationEvent) || !(evt.getTarget() instanceof Node))
+        {
+            return;
+        }
+        MutationEvent e = (MutationEvent)evt;
+        Node target = (Node)e.getTarget();
+        
+        if("DOMCharacterDataModified".equals(e.getType()))
+        {
+            onModified(target, e.getPrevValue());
+        }
+        else if("DOMAttrModified".equals(e.getType()))
+        {
+            Node attr = e.getRelatedNode();
+            switch(e.getAttrChange())
+            {
+            case MutationEvent.ADDITION:
+                onInserted(attr);
+                break;
+            case MutationEvent.REMOVAL:
+                onRemoved(attr, e.getPrevValue());
+                break;
+            default:
+                onModified(attr, e.getPrevValue());
+                break;
+            }
+        }
+        else if("DOMNodeInserted".equals(e.getType()))
+        {
+            onInserted(target);
+        }
+        else if("DOMNodeRemoved".equals(e.getType()))
+        {
+            onRemoved(target, getValue(target));
+        }
+    }
+    
+    private void onModified(Node node, String prevValue)
+    {
+        if(changeMap.containsKey(node) || isInAddedNode(node))
+        {
+            // keep the original value.
+            return;
+        }
+        changeMap.put(node, new Change(ChangeType.MODIFIED, null, prevValue));
+    }
+    
+    private void onInserted(Node node)
+    {
+        if(isInAddedNode(node))
+        {
+            // recorded as a part of the added node.
+            return;
+        }
+        changeMap.put(node, new Change(ChangeType.ADDED, null, null));
+        addedNodes.add(node);
+    }
+    
+    private void onRemoved(Node node, String value)
+    {
+        Change change = changeMap.remove(node);
+        if(change != null && change.type == ChangeType.ADDED)
+        {
+            // added and removed: nothing changed.
+            addedNodes.remove(node);
+            return;
+        }
+        if(isInAddedNode(node))
+        {
+            return;
+        }
+        
+        // changes to descendants are included in the removal,
+        // and are dropped when logging, not to scan all changes for each removal.
+        String oldValue = (change != null)?change.oldValue:value;
+        changeMap.put(node, new Change(ChangeType.REMOVED, XmlToolkit.getXpath(node, true), oldValue));
+    }
+    
+    private boolean isInAddedNode(Node node)
+    {
+        for(Node parent = getParent(node); parent != null; parent = getParent(parent))
+        {
+            if(addedNodes.contains(parent))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Returns whether a node is in a node added or removed,
+     * whose change includes changes to the node.
+     * 
+     * @param node  the node.
+     * @return  whether an ancestor of the node is added or removed.
+     */
+    private boolean isInReplacedNode(Node node)
+    {
+        for(Node parent = getParent(node); parent != null; parent = getParent(parent))
+        {
+            Change change = changeMap.get(parent);
+            if(change != null && change.type != ChangeType.MODIFIED)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static Node getParent(Node node)
+    {
+        if(node instanceof Attr)
+        {
+            return ((Attr)node).getOwnerElement();
+        }
+        return node.getParentNode();
+    }
+    
+    private static String getValue(Node node)
+    {
+        if(node.getNodeType() == Node.ELEMENT_NODE)
+        {
+            return node.getTextContent();
+        }
+        return node.getNodeValue();
+    }
+    
+    private static String quote(String value)
+    {
+        if(value == null)
+        {
+            return "(none)";
+        }
+        return String.format("\"%s\"", StringUtils.abbreviate(value, MAX_VALUE_LENGTH));
+    }
+    
+    /**
+     * Returns the recorded changes as lines addressed with XPath.
+     * 
+     * A node removed and added at the same path is shown as a modification.
+     * 
+     * @return the recorded changes.
+     */
+    public List<String> getDiffList()
+    {
+        List<Map.Entry<Node, Change>> entryList = new ArrayList<Map.Entry<Node, Change>>(changeMap.size());
+        for(Map.Entry<Node, Change> entry: changeMap.entrySet())
+        {
+            if(!isInReplacedNode(entry.getKey()))
+            {
+                entryList.add(entry);
+            }
+        }
+        
+        // path -> old value of removed nodes.
+        Map<String, String> removedMap = new LinkedHashMap<String, String>();
+        for(Map.Entry<Node, Change> entry: entryList)
+        {
+            Change change = entry.getValue();
+            if(change.type == ChangeType.REMOVED && !removedMap.containsKey(change.xpath))
+            {
+                removedMap.put(change.xpath, change.oldValue);
+            }
+        }
+        
+        List<String> diffList = new ArrayList<String>();
+        for(Map.Entry<Node, Change> entry: entryList)
+        {
+            Node node = entry.getKey();
+            Change change = entry.getValue();
+            switch(change.type)
+            {
+            case MODIFIED:
+                {
+                    String newValue = getValue(node);
+                    if(StringUtils.equals(change.oldValue, newValue))
+                    {
+                        continue;
+                    }
+                    diffList.add(String.format("  %s: %s -> %s",
+                            XmlToolkit.getXpath(node, true),
+                            quote(change.oldValue),
+                            quote(newValue)
+                    ));
+                }
+                break;
+            case ADDED:
+                {
+                    String xpath = XmlToolkit.getXpath(node, true);
+                    String newValue = getValue(node);
+                    if(removedMap.containsKey(xpath))
+                    {
+                        String oldValue = removedMap.remove(xpath);
+                        if(!StringUtils.equals(oldValue, newValue))
+                        {
+                            diffList.add(String.format("  %s: %s -> %s", xpath, quote(oldValue), quote(newValue)));
+                        }
+                        continue;
+                    }
+                    diffList.add(String.format("+ %s: %s", xpath, quote(newValue)));
+                }
+                break;
+            case REMOVED:
+                break;
+            }
+        }
+        for(Map.Entry<String, String> entry: removedMap.entrySet())
+        {
+            diffList.add(String.format("- %s: %s", entry.getKey(), quote(entry.getValue())));
+        }
+        
+        return diffList;
+    }
+    
+    /**
+     * Logs the recorded changes.
+     * 
+     * @param logger
+     */
+    public void log(PrintStream logger)
+    {
+        List<String> diffList = getDiffList();
+        if(diffList.isEmpty())
+        {
+            logger.println("No changes by operations.");
+            return;
+        }
+        logger.println(String.format("Changes by operations (%d):", diffList.size()));
+        for(String diff: diffList)
+        {
+            logger.println(diff);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+
+/**
+ * Computes fingerprints of XML documents, to tell whether they are the same.
+ * 
+ * Documents are digested in a canonical form:
+ * <ul>
+ *     <li>Attributes are sorted by their names.</li>
+ *     <li>Adjacent texts are joined. Texts only with whitespaces are ignored
+ *         if they are placed next to child elements, as they are used to indent elements.
+ *         They are digested if the element has no child elements,
+ *         as they are values like descriptions.</li>
+ *     <li>Comments and processing instructions are ignored.</li>
+ * </ul>
+ */
+public class XmlFingerprint
+{
+    private static final String ALGORITHM = "SHA-256";
+    
+    private static final byte ELEMENT_START = 1;
+    
+    private static final byte ELEMENT_END = 2;
+    
+    private static final byte ATTRIBUTE = 3;
+    
+    private static final byte TEXT = 4;
+    
+    private static final Comparator<Attr> ATTRIBUTE_COMPARATOR = new Comparator<Attr>()
+    {
+        @Override
+        public int compare(Attr o1, Attr o2)
+        {
+            return o1.getName().compareTo(o2.getName());
+        }
+    };
+    
+    private XmlFingerprint()
+    {
+    }
+    
+    /**
+     * Returns the fingerprint of a document.
+     * 
+     * @param doc   the document.
+     * @return      the fingerprint.
+     */
+    public static byte[] digest(Document doc)
+    {
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance(ALGORITHM);
+        }
+        catch(NoSuchAlgorithmException e)
+        {
+            // SHA-256 is always supported.
+            throw new IllegalStateException(e);
+        }
+        digestElement(digest, doc.getDocumentElement());
+        return digest.digest();
+    }
+    
+    /**
+     * Returns whether two documents are the same in the canonical form.
+     * 
+     * @param doc1  a document.
+     * @param doc2  another document.
+     * @return      whether the documents are the same.
+     */
+    public static boolean isSame(Document doc1, Document doc2)
+    {
+        return MessageDigest.isEqual(digest(doc1), digest(doc2));
+    }
+    
+    /**
+     * Digests an element and its descendants.
+     * 
+     * @param digest
+     * @param element
+     */
+    private static void digestElement(MessageDigest digest, Element element)
+    {
+        digest.update(ELEMENT_START);
+        digestString(digest, element.getNodeName());
+        
+        NamedNodeMap attributeMap = element.getAttributes();
+        Attr[] attributes = new Attr[attributeMap.getLength()];
+        for(int i = 0; i < attributes.length; ++i)
+        {
+            attributes[i] = (Attr)attributeMap.item(i);
+        }
+        Arrays.sort(attributes, ATTRIBUTE_COMPARATOR);
+        for(Attr attribute: attributes)
+        {
+            digest.update(ATTRIBUTE);
+            digestString(digest, attribute.getName());
+            digestString(digest, attribute.getValue());
+        }
+        
+        StringBuilder text = new StringBuilder();
+        boolean hasChildElement = false;
+        for(Node node = element.getFirstChild(); node != null; node = node.getNextSibling())
+        {
+            if(node instanceof Text)
+            {
+                // also CDATA sections.
+                text.append(node.getNodeValue());
+            }
+            else if(node instanceof Element)
+            {
+                digestText(digest, text, true);
+                digestElement(digest, (Element)node);
+                hasChildElement = true;
+            }
+        }
+        digestText(digest, text, hasChildElement);
+        
+        digest.update(ELEMENT_END);
+    }
+    
+    /**
+     * Digests a text and clears it.
+     * 
+     * @param digest
+     * @param text
+     * @param nextToElement whether the text is placed next to elements.
+     *                      Texts only with whitespaces are ignored then.
+     */
+    private static void digestText(MessageDigest digest, StringBuilder text, boolean nextToElement)
+    {
+        if(text.length() > 0 && (!nextToElement || text.toString().trim().length() > 0))
+        {
+            digest.update(TEXT);
+            digestString(digest, text.toString());
+        }
+        text.setLength(0);
+    }
+    
+    /**
+     * Digests a string with its length, so that concatenated strings are not confused.
+     * 
+     * @param digest
+     * @param value
+     */
+    private static void digestString(MessageDigest digest, String value)
+    {
+        byte[] bytes;
+        try
+        {
+            bytes = value.getBytes("UTF-8");
+        }
+        catch(UnsupportedEncodingException e)
+        {
+            // UTF-8 is always supported.
+            throw new IllegalStateException(e);
+        }
+        int length = bytes.length;
+        digest.update((byte)(length >>> 24));
+        digest.update((byte)(length >>> 16));
+        digest.update((byte)(length >>> 8));
+        digest.update((byte)length);
+        digest.update(bytes);
+    }
+}
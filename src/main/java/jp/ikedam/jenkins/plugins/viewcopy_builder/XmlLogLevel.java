@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+/**
+ * How much of the configuration XML is written to the build log.
+ * 
+ * The XML is serialized only when the level requires it.
+ * Levels are ordered from the most verbose one.
+ */
+public enum XmlLogLevel
+{
+    /**
+     * Logs the whole XML.
+     */
+    FULL
+    {
+        @Override
+        public String getDisplayName()
+        {
+            return Messages.XmlLogLevel_FULL();
+        }
+    },
+    /**
+     * Logs the beginning of the XML, up to a fixed length.
+     */
+    PREVIEW
+    {
+        @Override
+        public String getDisplayName()
+        {
+            return Messages.XmlLogLevel_PREVIEW();
+        }
+    },
+    /**
+     * Logs only nodes changed by operations, addressed with XPath.
+     * 
+     * The original and copied XML are logged as {@link #SUMMARY}.
+     */
+    DIFF
+    {
+        @Override
+        public String getDisplayName()
+        {
+            return Messages.XmlLogLevel_DIFF();
+        }
+    },
+    /**
+     * Logs only the root element and the number of elements.
+     */
+    SUMMARY
+    {
+        @Override
+        public String getDisplayName()
+        {
+            return Messages.XmlLogLevel_SUMMARY();
+        }
+    },
+    /**
+     * Does not log the XML.
+     */
+    NONE
+    {
+        @Override
+        public String getDisplayName()
+        {
+            return Messages.XmlLogLevel_NONE();
+        }
+    },
+    ;
+    
+    /**
+     * Returns the name displayed in the job configuration page.
+     * 
+     * @return the display name
+     */
+    public abstract String getDisplayName();
+}
@@ -0,0 +1,321 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+import org.xml.sax.SAXException;
+
+import hudson.model.View;
+import hudson.util.XStream2;
+
+/**
+ * Holds XML processing objects shared in this plugin.
+ * 
+ * Instantiating XStream2, DocumentBuilderFactory and TransformerFactory is expensive
+ * (JAXP service lookups and reflection warm-ups),
+ * so they are created and configured only once.
+ * <ul>
+ *     <li>XStream2 is thread-safe once configured, and shared by all threads.</li>
+ *     <li>DocumentBuilder and Transformer are not thread-safe, and held for each thread.</li>
+ * </ul>
+ * 
+ * This class is also used on nodes by {@link AgentTransformer},
+ * where XStream2 is never used and so is not created.
+ */
+public class XmlToolkit
+{
+    /**
+     * Holds XStream2 objects, created when first used.
+     */
+    private static class XStreamHolder
+    {
+        private static final XStream2 VIEW_XSTREAM = createViewXStream(true);
+        
+        private static final XStream2 VIEW_TREE_XSTREAM = createViewXStream(false);
+    }
+    
+    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = DocumentBuilderFactory.newInstance();
+    
+    private static final TransformerFactory TRANSFORMER_FACTORY = TransformerFactory.newInstance();
+    
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER = new ThreadLocal<DocumentBuilder>();
+    
+    private static final ThreadLocal<Transformer> TRANSFORMER = new ThreadLocal<Transformer>();
+    
+    private static final ThreadLocal<Transformer> INDENT_TRANSFORMER = new ThreadLocal<Transformer>();
+    
+    private XmlToolkit()
+    {
+    }
+    
+    /**
+     * Create XStream2 to serialize the configuration of a view.
+     * 
+     * @param omitName  whether to omit names of views.
+     * @return XStream2 configured to serialize views.
+     */
+    private static XStream2 createViewXStream(boolean omitName)
+    {
+        XStream2 xStream2 = new XStream2();
+        xStream2.omitField(View.class, "owner");
+        if(omitName)
+        {
+            xStream2.omitField(View.class, "name"); // this field causes disaster when overwriting.
+        }
+        return xStream2;
+    }
+    
+    /**
+     * Returns XStream2 to serialize the configuration of a view.
+     * 
+     * Fields that must not be copied (owner and name) are omitted.
+     * 
+     * @return XStream2 shared by all threads.
+     */
+    public static XStream2 getViewXStream()
+    {
+        return XStreamHolder.VIEW_XSTREAM;
+    }
+    
+    /**
+     * Returns XStream2 to serialize the configuration of a view and views in it.
+     * 
+     * Names are not omitted, as views in a view group cannot be restored without them.
+     * The caller must remove the name of the view itself.
+     * 
+     * @return XStream2 shared by all threads.
+     */
+    public static XStream2 getViewTreeXStream()
+    {
+        return XStreamHolder.VIEW_TREE_XSTREAM;
+    }
+    
+    /**
+     * Returns a DocumentBuilder for the current thread.
+     * 
+     * @return a DocumentBuilder that can be used only in the current thread.
+     * @throws ParserConfigurationException
+     */
+    public static DocumentBuilder getDocumentBuilder()
+            throws ParserConfigurationException
+    {
+        DocumentBuilder builder = DOCUMENT_BUILDER.get();
+        if(builder == null)
+        {
+            // DocumentBuilderFactory is not guaranteed to be thread-safe.
+            synchronized(DOCUMENT_BUILDER_FACTORY)
+            {
+                builder = DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+            }
+            DOCUMENT_BUILDER.set(builder);
+        }
+        else
+        {
+            builder.reset();
+        }
+        return builder;
+    }
+    
+    /**
+     * Returns a new empty XML document.
+     * 
+     * @return a new empty XML document.
+     * @throws ParserConfigurationException
+     */
+    public static Document newDocument()
+            throws ParserConfigurationException
+    {
+        return getDocumentBuilder().newDocument();
+    }
+    
+    /**
+     * Parses a XML document.
+     * 
+     * @param xml   the XML document in bytes.
+     * @return      the parsed document.
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws IOException
+     */
+    public static Document parse(byte[] xml)
+            throws ParserConfigurationException, SAXException, IOException
+    {
+        return getDocumentBuilder().parse(new ByteArrayInputStream(xml));
+    }
+    
+    /**
+     * Converts a XML document to bytes.
+     * 
+     * @param doc   the document.
+     * @return      the document in bytes, with the encoding declared in it.
+     * @throws TransformerException
+     */
+    public static byte[] toBytes(Document doc)
+            throws TransformerException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        getTransformer(false).transform(new DOMSource(doc), new StreamResult(out));
+        return out.toByteArray();
+    }
+    
+    /**
+     * Returns a deep copy of a XML document.
+     * 
+     * @param doc   the document to copy.
+     * @return      a new document with the copy of the root element.
+     * @throws ParserConfigurationException
+     */
+    public static Document copyDocument(Document doc)
+            throws ParserConfigurationException
+    {
+        Document copy = newDocument();
+        copy.appendChild(copy.importNode(doc.getDocumentElement(), true));
+        return copy;
+    }
+    
+    /**
+     * Returns a Transformer for the current thread.
+     * 
+     * @param indent whether the transformer indents the output.
+     * @return a Transformer that can be used only in the current thread.
+     * @throws TransformerConfigurationException
+     */
+    public static Transformer getTransformer(boolean indent)
+            throws TransformerConfigurationException
+    {
+        ThreadLocal<Transformer> holder = indent?INDENT_TRANSFORMER:TRANSFORMER;
+        Transformer transformer = holder.get();
+        if(transformer == null)
+        {
+            // TransformerFactory is not guaranteed to be thread-safe.
+            synchronized(TRANSFORMER_FACTORY)
+            {
+                transformer = TRANSFORMER_FACTORY.newTransformer();
+            }
+            if(indent)
+            {
+                transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+            }
+            holder.set(transformer);
+        }
+        else
+        {
+            transformer.clearParameters();
+        }
+        return transformer;
+    }
+    
+    /**
+     * Retrieve a XPath expression of a node.
+     * 
+     * Use only for displaying purposes only.
+     * For this works not so strict, 
+     * the return value supposes not to work proper
+     * with XPath processors.
+     * 
+     * @param targetNode    a node whose XPath expression is retrieved.
+     * @param withPosition  whether to add the position of an element among siblings with the same name.
+     * @return              XPath expression.
+     */
+    public static String getXpath(Node targetNode, boolean withPosition)
+    {
+        if(targetNode instanceof Attr)
+        {
+            Attr attr = (Attr)targetNode;
+            String ownerPath = (attr.getOwnerElement() != null)?getXpath(attr.getOwnerElement(), withPosition):"";
+            return String.format("%s/@%s", ownerPath, attr.getName());
+        }
+        
+        StringBuilder pathBuilder = new StringBuilder();
+        for(Node node = targetNode; node != null && !(node instanceof Document); node = node.getParentNode())
+        {
+            if(node instanceof Text)
+            {
+                pathBuilder.insert(0, "text()");
+                pathBuilder.insert(0, '/');
+            }
+            else
+            {
+                if(withPosition && node instanceof Element)
+                {
+                    int position = getPosition((Element)node);
+                    if(position > 0)
+                    {
+                        pathBuilder.insert(0, String.format("[%d]", position));
+                    }
+                }
+                pathBuilder.insert(0, node.getNodeName());
+                pathBuilder.insert(0, '/');
+            }
+        }
+        return pathBuilder.toString();
+    }
+    
+    /**
+     * Returns the position of an element among siblings with the same name.
+     * 
+     * @param element
+     * @return  the position starting with 1. 0 if there is no sibling with the same name.
+     */
+    private static int getPosition(Element element)
+    {
+        int position = 1;
+        boolean hasSameName = false;
+        for(Node node = element.getPreviousSibling(); node != null; node = node.getPreviousSibling())
+        {
+            if(node instanceof Element && node.getNodeName().equals(element.getNodeName()))
+            {
+                ++position;
+                hasSameName = true;
+            }
+        }
+        for(Node node = element.getNextSibling(); !hasSameName && node != null; node = node.getNextSibling())
+        {
+            if(node instanceof Element && node.getNodeName().equals(element.getNodeName()))
+            {
+                hasSameName = true;
+            }
+        }
+        return hasSameName?position:0;
+    }
+}
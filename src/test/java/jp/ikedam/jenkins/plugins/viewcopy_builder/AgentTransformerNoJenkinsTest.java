@@ -0,0 +1,122 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import hudson.EnvVars;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ *
+ */
+public class AgentTransformerNoJenkinsTest
+{
+    public static class SetAttributeOperation extends ViewcopyOperation
+    {
+        private static final long serialVersionUID = 1L;
+        
+        @Override
+        public Document perform(Document doc, EnvVars env, PrintStream logger)
+        {
+            doc.getDocumentElement().setAttribute("test", env.get("VALUE"));
+            logger.println("Set attribute");
+            return doc;
+        }
+    }
+    
+    public static class FailOperation extends ViewcopyOperation
+    {
+        private static final long serialVersionUID = 1L;
+        
+        @Override
+        public Document perform(Document doc, EnvVars env, PrintStream logger)
+        {
+            logger.println("Failed");
+            return null;
+        }
+    }
+    
+    private byte[] getXml() throws Exception
+    {
+        return "<view><description>test</description></view>".getBytes("UTF-8");
+    }
+    
+    @Test
+    public void testInvoke() throws Exception
+    {
+        EnvVars env = new EnvVars();
+        env.put("VALUE", "value");
+        List<ViewcopyOperation> operationList = new ArrayList<ViewcopyOperation>(Arrays.<ViewcopyOperation>asList(
+                new SetAttributeOperation(),
+                new ViewcopyOperationNoJenkinsTest.TestViewcopyOperation()
+        ));
+        
+        AgentTransformer.Result result = new AgentTransformer(getXml(), operationList, env)
+                .invoke(new File(System.getProperty("java.io.tmpdir")), null);
+        
+        assertNotNull(result.getXml());
+        Document doc = XmlToolkit.parse(result.getXml());
+        assertEquals("value", doc.getDocumentElement().getAttribute("test"));
+        assertEquals("test", doc.getDocumentElement().getTextContent());
+        assertTrue(result.getLog().contains("Set attribute"));
+    }
+    
+    @Test
+    public void testInvokeFailure() throws Exception
+    {
+        List<ViewcopyOperation> operationList = new ArrayList<ViewcopyOperation>(Arrays.<ViewcopyOperation>asList(
+                new FailOperation(),
+                new SetAttributeOperation()
+        ));
+        
+        AgentTransformer.Result result = new AgentTransformer(getXml(), operationList, new EnvVars())
+                .invoke(new File(System.getProperty("java.io.tmpdir")), null);
+        
+        assertNull(result.getXml());
+        assertTrue(result.getLog().contains("Failed"));
+        // following operations are not applied.
+        assertFalse(result.getLog().contains("Set attribute"));
+    }
+    
+    @Test
+    public void testInvokeBrokenXml() throws Exception
+    {
+        List<ViewcopyOperation> operationList = new ArrayList<ViewcopyOperation>();
+        
+        AgentTransformer.Result result = new AgentTransformer("<view>".getBytes("UTF-8"), operationList, new EnvVars())
+                .invoke(new File(System.getProperty("java.io.tmpdir")), null);
+        
+        assertNull(result.getXml());
+        assertTrue(result.getLog().contains("Failed to apply operations on the node."));
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ *
+ */
+public class BindingsFileFormatNoJenkinsTest
+{
+    @Test
+    public void testCsv() throws IOException
+    {
+        BindingsFileFormat.RowReader reader = BindingsFileFormat.CSV.open(new StringReader(
+                "BRANCH,PORT\n"
+                + "a,8080\n"
+                + "b,8081\n"
+        ));
+        
+        Map<String, String> row = reader.next();
+        assertEquals("a", row.get("BRANCH"));
+        assertEquals("8080", row.get("PORT"));
+        row = reader.next();
+        assertEquals("b", row.get("BRANCH"));
+        assertEquals("8081", row.get("PORT"));
+        assertNull(reader.next());
+    }
+    
+    @Test
+    public void testCsvEmpty() throws IOException
+    {
+        assertNull(BindingsFileFormat.CSV.open(new StringReader("")).next());
+        assertNull(BindingsFileFormat.CSV.open(new StringReader("BRANCH\n")).next());
+    }
+    
+    @Test(expected=IOException.class)
+    public void testCsvColumnMismatch() throws IOException
+    {
+        BindingsFileFormat.CSV.open(new StringReader("BRANCH,PORT\na\n")).next();
+    }
+    
+    @Test
+    public void testCsvMalformedRow() throws IOException
+    {
+        BindingsFileFormat.RowReader reader = BindingsFileFormat.CSV.open(new StringReader(
+                "\uFEFFBRANCH,PORT\n"
+                + "a,8080\n"
+                + "b\n"
+                + "c,8082\n"
+                + "\"d,8083\n"
+                + "e,8084\n"
+        ));
+        
+        // the byte order mark is not a part of the header.
+        assertEquals("a", reader.next().get("BRANCH"));
+        try
+        {
+            reader.next();
+            fail();
+        }
+        catch(MalformedRowException e)
+        {
+            assertEquals(3, e.getLineNumber());
+        }
+        assertEquals("c", reader.next().get("BRANCH"));
+        try
+        {
+            reader.next();
+            fail();
+        }
+        catch(MalformedRowException e)
+        {
+            assertEquals(5, e.getLineNumber());
+        }
+        // the quote is not closed till the end.
+        assertNull(reader.next());
+    }
+    
+    @Test
+    public void testJsonLinesMalformedRow() throws IOException
+    {
+        BindingsFileFormat.RowReader reader = BindingsFileFormat.JSON_LINES.open(new StringReader(
+                "{\"BRANCH\": \"a\"}\n"
+                + "{\"BRANCH\": \"b\n"
+                + "{\"BRANCH\": \"c\"} x\n"
+                + "{\"BRANCH\": \"d\"}\n"
+        ));
+        
+        assertEquals("a", reader.next().get("BRANCH"));
+        try
+        {
+            reader.next();
+            fail();
+        }
+        catch(MalformedRowException e)
+        {
+            assertEquals(2, e.getLineNumber());
+        }
+        try
+        {
+            reader.next();
+            fail();
+        }
+        catch(MalformedRowException e)
+        {
+            assertEquals(3, e.getLineNumber());
+        }
+        assertEquals("d", reader.next().get("BRANCH"));
+        assertNull(reader.next());
+    }
+    
+    @Test
+    public void testJsonLines() throws IOException
+    {
+        BindingsFileFormat.RowReader reader = BindingsFileFormat.JSON_LINES.open(new StringReader(
+                "{\"BRANCH\": \"a\", \"PORT\": 8080}\n"
+                + "{\"BRANCH\": \"b\"}\n"
+                + "\n"
+        ));
+        
+        Map<String, String> row = reader.next();
+        assertEquals("a", row.get("BRANCH"));
+        assertEquals("8080", row.get("PORT"));
+        row = reader.next();
+        assertEquals("b", row.get("BRANCH"));
+        assertNull(row.get("PORT"));
+        assertNull(reader.next());
+    }
+}
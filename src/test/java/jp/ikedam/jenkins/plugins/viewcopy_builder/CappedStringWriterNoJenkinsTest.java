@@ -0,0 +1,64 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ *
+ */
+public class CappedStringWriterNoJenkinsTest
+{
+    @Test
+    public void testWithinLength() throws Exception
+    {
+        CappedStringWriter writer = new CappedStringWriter(10);
+        writer.write("01234");
+        writer.write("56789");
+        assertFalse(writer.isExceeded());
+        assertEquals("0123456789", writer.toString());
+    }
+    
+    @Test
+    public void testExceeded() throws Exception
+    {
+        CappedStringWriter writer = new CappedStringWriter(10);
+        writer.write("01234");
+        try
+        {
+            writer.write("56789abcde");
+            fail("should throw IOException");
+        }
+        catch(IOException e)
+        {
+            // pass
+        }
+        assertTrue(writer.isExceeded());
+        assertEquals("0123456789", writer.toString());
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ *
+ */
+public class CsvReaderNoJenkinsTest
+{
+    @Test
+    public void testReadRecord() throws IOException
+    {
+        CsvReader reader = new CsvReader(new StringReader(
+                "a,b,c\r\n"
+                + "\r\n"
+                + "\"d,\"\"e\"\"\",\"f\ng\",\n"
+                + "h"
+        ));
+        
+        assertEquals(Arrays.asList("a", "b", "c"), reader.readRecord());
+        assertEquals(1, reader.getRecordLineNumber());
+        assertEquals(Arrays.asList("d,\"e\"", "f\ng", ""), reader.readRecord());
+        assertEquals(3, reader.getRecordLineNumber());
+        assertEquals(Arrays.asList("h"), reader.readRecord());
+        assertEquals(5, reader.getRecordLineNumber());
+        assertNull(reader.readRecord());
+    }
+    
+    @Test
+    public void testReadRecordEmpty() throws IOException
+    {
+        assertNull(new CsvReader(new StringReader("")).readRecord());
+        assertNull(new CsvReader(new StringReader("\n\r\n")).readRecord());
+    }
+    
+    @Test(expected=IOException.class)
+    public void testReadRecordUnclosedQuote() throws IOException
+    {
+        new CsvReader(new StringReader("\"a,b\n")).readRecord();
+    }
+    
+    @Test
+    public void testReadRecordAfterUnclosedQuote() throws IOException
+    {
+        CsvReader reader = new CsvReader(new StringReader("a,b\n\"c,d\ne,f\n\ng,h\n"), 2, 1024);
+        assertEquals(Arrays.asList("a", "b"), reader.readRecord());
+        try
+        {
+            reader.readRecord();
+            fail();
+        }
+        catch(MalformedRowException e)
+        {
+            assertEquals(2, e.getLineNumber());
+        }
+        // continues from the line exceeding the limit.
+        assertEquals(Arrays.asList("g", "h"), reader.readRecord());
+        assertEquals(5, reader.getRecordLineNumber());
+        assertNull(reader.readRecord());
+    }
+    
+    @Test
+    public void testReadRecordTooLongQuote() throws IOException
+    {
+        CsvReader reader = new CsvReader(new StringReader("\"abcdefghij\nk,l\n"), 100, 5);
+        try
+        {
+            reader.readRecord();
+            fail();
+        }
+        catch(MalformedRowException e)
+        {
+            assertEquals(1, e.getLineNumber());
+        }
+        // continues from the line following the one exceeding the limit.
+        assertEquals(Arrays.asList("k", "l"), reader.readRecord());
+        assertEquals(2, reader.getRecordLineNumber());
+        assertNull(reader.readRecord());
+    }
+    
+    @Test
+    public void testReadRecordUnclosedQuoteToEnd() throws IOException
+    {
+        CsvReader reader = new CsvReader(new StringReader("a,b\n\"c,d\ne,f\n"));
+        assertEquals(Arrays.asList("a", "b"), reader.readRecord());
+        try
+        {
+            reader.readRecord();
+            fail();
+        }
+        catch(MalformedRowException e)
+        {
+            assertEquals(2, e.getLineNumber());
+        }
+        assertNull(reader.readRecord());
+    }
+    
+    @Test
+    public void testReadRecordByteOrderMark() throws IOException
+    {
+        CsvReader reader = new CsvReader(new StringReader("\uFEFFa,b\nc,d\n"));
+        assertEquals(Arrays.asList("a", "b"), reader.readRecord());
+        assertEquals(Arrays.asList("c", "d"), reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+}
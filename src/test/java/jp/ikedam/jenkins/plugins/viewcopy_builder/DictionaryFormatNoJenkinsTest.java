@@ -0,0 +1,119 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+/**
+ *
+ */
+public class DictionaryFormatNoJenkinsTest
+{
+    private String read(DictionaryFormat format, String content, String text) throws IOException
+    {
+        MultiStringReplacer replacer = new MultiStringReplacer();
+        format.read(new StringReader(content), replacer);
+        return replacer.replace(text);
+    }
+    
+    @Test
+    public void testProperties() throws IOException
+    {
+        String content = "# comment\n"
+                + "template=production\n"
+                + "test\\ view = prod\\u00e9\n"
+                + "\n";
+        assertEquals("production-prod\u00e9", read(DictionaryFormat.PROPERTIES, content, "template-test view"));
+    }
+    
+    @Test
+    public void testPropertiesCount() throws IOException
+    {
+        MultiStringReplacer replacer = new MultiStringReplacer();
+        assertEquals(2, DictionaryFormat.PROPERTIES.read(new StringReader("a=b\nc=d\n"), replacer));
+        assertEquals(2, replacer.size());
+    }
+    
+    @Test(expected=IOException.class)
+    public void testPropertiesEmptyKey() throws IOException
+    {
+        read(DictionaryFormat.PROPERTIES, "=value\n", "");
+    }
+    
+    @Test
+    public void testCsv() throws IOException
+    {
+        String content = "template,production\r\n"
+                + "\r\n"
+                + "\"a,\"\"b\"\"\",\"c\nd\"\r\n"
+                + "remove,";
+        assertEquals("production c\nd ", read(DictionaryFormat.CSV, content, "template a,\"b\" remove"));
+    }
+    
+    @Test(expected=IOException.class)
+    public void testCsvTooManyColumns() throws IOException
+    {
+        read(DictionaryFormat.CSV, "a,b\nc,d,e\n", "");
+    }
+    
+    @Test(expected=IOException.class)
+    public void testCsvUnclosedQuote() throws IOException
+    {
+        read(DictionaryFormat.CSV, "\"a,b\n", "");
+    }
+    
+    @Test
+    public void testJson() throws IOException
+    {
+        String content = "{\n"
+                + "  \"template\": \"production\",\n"
+                + "  \"\\\"quoted\\\"\": \"\\u00e9\\n\"\n"
+                + "}\n";
+        assertEquals("production \u00e9\n", read(DictionaryFormat.JSON, content, "template \"quoted\""));
+        assertEquals("a", read(DictionaryFormat.JSON, " { } ", "a"));
+    }
+    
+    @Test(expected=IOException.class)
+    public void testJsonNotString() throws IOException
+    {
+        read(DictionaryFormat.JSON, "{\"a\": 1}", "");
+    }
+    
+    @Test(expected=IOException.class)
+    public void testJsonTrailing() throws IOException
+    {
+        read(DictionaryFormat.JSON, "{\"a\": \"b\"} x", "");
+    }
+    
+    @Test(expected=IOException.class)
+    public void testJsonUnterminated() throws IOException
+    {
+        read(DictionaryFormat.JSON, "{\"a\": \"b\"", "");
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ *
+ */
+public class JsonReaderNoJenkinsTest
+{
+    @Test
+    public void testReadObject() throws IOException
+    {
+        JsonReader reader = new JsonReader(new StringReader(
+                "{\"a\": \"x\\u00e9\\n\", \"b\": -1.5e3, \"c\": true, \"d\": null}\n"
+                + "{}\n"
+        ));
+        
+        Map<String, String> object = reader.readObject();
+        assertEquals(3, object.size());
+        assertEquals("x\u00e9\n", object.get("a"));
+        assertEquals("-1.5e3", object.get("b"));
+        assertEquals("true", object.get("c"));
+        assertFalse(object.containsKey("d"));
+        
+        assertTrue(reader.readObject().isEmpty());
+        assertEquals(-1, reader.peekToken());
+    }
+    
+    @Test(expected=IOException.class)
+    public void testReadObjectNested() throws IOException
+    {
+        new JsonReader(new StringReader("{\"a\": {}}")).readObject();
+    }
+    
+    @Test(expected=IOException.class)
+    public void testReadObjectInvalidValue() throws IOException
+    {
+        new JsonReader(new StringReader("{\"a\": yes}")).readObject();
+    }
+    
+    @Test(expected=IOException.class)
+    public void testReadObjectUnterminated() throws IOException
+    {
+        new JsonReader(new StringReader("{\"a\": \"b\"")).readObject();
+    }
+}
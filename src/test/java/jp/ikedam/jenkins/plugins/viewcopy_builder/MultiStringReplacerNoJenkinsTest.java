@@ -0,0 +1,115 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ *
+ */
+public class MultiStringReplacerNoJenkinsTest
+{
+    @Test
+    public void testReplace()
+    {
+        MultiStringReplacer replacer = new MultiStringReplacer();
+        replacer.add("template", "production");
+        replacer.add("test", "prod");
+        assertEquals(2, replacer.size());
+        
+        assertEquals("production-prod-.*", replacer.replace("template-test-.*"));
+        assertEquals("prodprod", replacer.replace("testtest"));
+        assertEquals("", replacer.replace(""));
+        assertNull(replacer.replace(null));
+    }
+    
+    @Test
+    public void testNoMatch()
+    {
+        MultiStringReplacer replacer = new MultiStringReplacer();
+        replacer.add("abc", "xyz");
+        
+        String text = "ab-bc-ac";
+        // same instance is returned if nothing is replaced.
+        assertSame(text, replacer.replace(text));
+    }
+    
+    @Test
+    public void testSimultaneous()
+    {
+        MultiStringReplacer replacer = new MultiStringReplacer();
+        replacer.add("a", "b");
+        replacer.add("b", "a");
+        
+        // replaced strings are never replaced again.
+        assertEquals("baab", replacer.replace("abba"));
+    }
+    
+    @Test
+    public void testLeftmostLongest()
+    {
+        MultiStringReplacer replacer = new MultiStringReplacer();
+        replacer.add("he", "1");
+        replacer.add("hers", "2");
+        replacer.add("she", "3");
+        replacer.add("is", "4");
+        
+        // "she" starts left to "he".
+        assertEquals("u3rs", replacer.replace("ushers"));
+        // "hers" is longer than "he".
+        assertEquals("t2", replacer.replace("thers"));
+        assertEquals("t1r", replacer.replace("ther"));
+        assertEquals("th4", replacer.replace("this"));
+    }
+    
+    @Test
+    public void testDuplicate()
+    {
+        MultiStringReplacer replacer = new MultiStringReplacer();
+        replacer.add("a", "b");
+        replacer.add("a", "c");
+        
+        // the later one wins.
+        assertEquals(1, replacer.size());
+        assertEquals("c", replacer.replace("a"));
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void testAddEmpty()
+    {
+        MultiStringReplacer replacer = new MultiStringReplacer();
+        replacer.add("", "a");
+    }
+    
+    @Test(expected=IllegalStateException.class)
+    public void testAddAfterReplace()
+    {
+        MultiStringReplacer replacer = new MultiStringReplacer();
+        replacer.add("a", "b");
+        replacer.replace("a");
+        replacer.add("c", "d");
+    }
+}
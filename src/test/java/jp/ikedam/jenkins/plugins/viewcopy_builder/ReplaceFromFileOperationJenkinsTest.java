@@ -0,0 +1,187 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import static org.junit.Assert.*;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleProject;
+import hudson.model.ListView;
+import hudson.model.Result;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.TestBuilder;
+
+/**
+ *
+ */
+public class ReplaceFromFileOperationJenkinsTest
+{
+    @Rule
+    public MyJenkinsRule j = new MyJenkinsRule();
+    
+    private ListView srcView;
+    
+    /**
+     * Writes a file to the workspace.
+     */
+    private static class WriteFileBuilder extends TestBuilder
+    {
+        private final String path;
+        private final String content;
+        
+        public WriteFileBuilder(String path, String content)
+        {
+            this.path = path;
+            this.content = content;
+        }
+        
+        @Override
+        public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
+            throws InterruptedException, IOException
+        {
+            build.getWorkspace().child(path).write(content, "UTF-8");
+            return true;
+        }
+    }
+    
+    @Before
+    public void setUp() throws Exception
+    {
+        ListView templateView = new ListView("TemplateView");
+        j.jenkins.addView(templateView);
+        
+        /* There is no way to set properties to ListView other than copying...*/
+        FreeStyleProject copier1 = j.createFreeStyleProject();
+        copier1.getBuildersList().add(new ViewcopyBuilder(
+                templateView.getViewName(),
+                "SrcView",
+                true,
+                Arrays.<ViewcopyOperation>asList(
+                        new SetRegexOperation("template-.*"),
+                        new SetDescriptionOperation("This are a test message.")
+                )
+        ));
+        
+        copier1.scheduleBuild2(0).get();
+        srcView = (ListView)j.jenkins.getView("SrcView");
+    }
+    
+    private void assertReplaced(String fileName, String content, DictionaryFormat format) throws Exception
+    {
+        String destViewName = "DestView";
+        FreeStyleProject copier = j.createFreeStyleProject();
+        copier.getBuildersList().add(new WriteFileBuilder(copier.getName() + "-" + fileName, content));
+        copier.getBuildersList().add(new ViewcopyBuilder(
+                srcView.getViewName(),
+                destViewName,
+                true,
+                Arrays.<ViewcopyOperation>asList(
+                        // variables in the path are expanded.
+                        new ReplaceFromFileOperation("${JOB_NAME}-" + fileName, format, null)
+                )
+        ));
+        
+        j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        
+        ListView destView = (ListView)j.jenkins.getView(destViewName);
+        assertEquals("template2-.*", destView.getIncludeRegex());
+        assertEquals("This is a test message.", destView.getDescription());
+    }
+    
+    @Test
+    public void testProperties() throws Exception
+    {
+        assertReplaced(
+                "dict.properties",
+                "template-=template2-\n"
+                + "\\ are\\ =\\ is\\ \n",
+                DictionaryFormat.PROPERTIES
+        );
+    }
+    
+    @Test
+    public void testCsv() throws Exception
+    {
+        assertReplaced(
+                "dict.csv",
+                "template-,template2-\n"
+                + "\" are \",\" is \"\n",
+                DictionaryFormat.CSV
+        );
+    }
+    
+    @Test
+    public void testJson() throws Exception
+    {
+        assertReplaced(
+                "dict.json",
+                "{\"template-\": \"template2-\", \" are \": \" is \"}",
+                DictionaryFormat.JSON
+        );
+    }
+    
+    @Test
+    public void testFileNotFound() throws Exception
+    {
+        String destViewName = "DestView";
+        FreeStyleProject copier = j.createFreeStyleProject();
+        copier.getBuildersList().add(new ViewcopyBuilder(
+                srcView.getViewName(),
+                destViewName,
+                true,
+                Arrays.<ViewcopyOperation>asList(
+                        new ReplaceFromFileOperation("nosuchfile.properties", DictionaryFormat.PROPERTIES, null)
+                )
+        ));
+        
+        j.assertBuildStatus(Result.FAILURE, copier.scheduleBuild2(0).get());
+        assertNull(j.jenkins.getView(destViewName));
+    }
+    
+    @Test
+    public void testMalformedFile() throws Exception
+    {
+        String destViewName = "DestView";
+        FreeStyleProject copier = j.createFreeStyleProject();
+        copier.getBuildersList().add(new WriteFileBuilder("dict.json", "{\"template-\": 1}"));
+        copier.getBuildersList().add(new ViewcopyBuilder(
+                srcView.getViewName(),
+                destViewName,
+                true,
+                Arrays.<ViewcopyOperation>asList(
+                        new ReplaceFromFileOperation("dict.json", DictionaryFormat.JSON, null)
+                )
+        ));
+        
+        j.assertBuildStatus(Result.FAILURE, copier.scheduleBuild2(0).get());
+        assertNull(j.jenkins.getView(destViewName));
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import static org.junit.Assert.*;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.ListView;
+import hudson.model.Result;
+import hudson.model.View;
+import hudson.model.ViewGroup;
+import jenkins.model.Jenkins;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class ViewIndexJenkinsTest
+{
+    @Rule
+    public MyJenkinsRule j = new MyJenkinsRule();
+    
+    @Test
+    public void testGetView() throws Exception
+    {
+        ListView view = new ListView("IndexedView");
+        j.jenkins.addView(view);
+        
+        assertSame(view, ViewIndex.getView("IndexedView"));
+        assertEquals("IndexedView", ViewIndex.getPath(view));
+        assertNull(ViewIndex.getView("NoSuchView"));
+        assertNull(ViewIndex.getView(null));
+    }
+    
+    @Test
+    public void testFindPaths() throws Exception
+    {
+        j.jenkins.addView(new ListView("team-nightly"));
+        j.jenkins.addView(new ListView("Team-weekly"));
+        j.jenkins.addView(new ListView("other-team"));
+        
+        // AllView is not listed.
+        assertEquals(Arrays.asList("other-team", "team-nightly", "Team-weekly"), ViewIndex.findPaths(null, 10));
+        assertEquals(Arrays.asList("team-nightly", "Team-weekly", "other-team"), ViewIndex.findPaths("TEAM", 10));
+        assertEquals(Arrays.asList("team-nightly"), ViewIndex.findPaths("TEAM", 1));
+        
+        // updated when views are added.
+        ListView srcView = new ListView("SrcView");
+        j.jenkins.addView(srcView);
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.getBuildersList().add(new ViewcopyBuilder(
+                srcView.getViewName(),
+                "team-daily",
+                false,
+                Arrays.<ViewcopyOperation>asList()
+        ));
+        j.assertBuildStatusSuccess(p.scheduleBuild2(0));
+        assertEquals(Arrays.asList("team-daily", "team-nightly", "Team-weekly"), ViewIndex.findPaths("team-", 10));
+    }
+    
+    @Test
+    public void testGetParentPath() throws Exception
+    {
+        assertNull(ViewIndex.getParentPath("nightly"));
+        assertEquals("team", ViewIndex.getParentPath("team/nightly"));
+        assertEquals("team/release", ViewIndex.getParentPath("team/release/nightly"));
+    }
+    
+    @Test
+    public void testCannotCreateInViewGroup() throws Exception
+    {
+        ListView srcView = new ListView("SrcView");
+        j.jenkins.addView(srcView);
+        
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.getBuildersList().add(new ViewcopyBuilder(
+                srcView.getViewName(),
+                "team/DestView",
+                false,
+                Arrays.<ViewcopyOperation>asList()
+        ));
+        FreeStyleBuild b = j.assertBuildStatus(Result.FAILURE, p.scheduleBuild2(0).get());
+        j.assertLogContains("Cannot create team/DestView", b);
+        assertNull(ViewIndex.getView("team/DestView"));
+    }
+    
+    @Test
+    public void testUpdatedOnSave() throws Exception
+    {
+        assertNull(ViewIndex.getView("IndexedView"));
+        
+        ListView view = new ListView("IndexedView");
+        j.jenkins.addView(view);
+        assertSame(view, ViewIndex.getView("IndexedView"));
+        
+        view.rename("RenamedView");
+        view.save();
+        assertNull(ViewIndex.getView("IndexedView"));
+        assertSame(view, ViewIndex.getView("RenamedView"));
+        
+        j.jenkins.deleteView(view);
+        assertNull(ViewIndex.getView("RenamedView"));
+    }
+    
+    @Test
+    public void testUpdatedOnCopy() throws Exception
+    {
+        ListView srcView = new ListView("SrcView");
+        j.jenkins.addView(srcView);
+        assertNull(ViewIndex.getView("DestView"));
+        
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.getBuildersList().add(new ViewcopyBuilder(
+                srcView.getViewName(),
+                "DestView",
+                false,
+                Arrays.<ViewcopyOperation>asList()
+        ));
+        j.assertBuildStatusSuccess(p.scheduleBuild2(0));
+        
+        View destView = ViewIndex.getView("DestView");
+        assertNotNull(destView);
+        assertSame(j.jenkins.getView("DestView"), destView);
+    }
+    
+    /**
+     * Create a view group with views in it.
+     * 
+     * @param name      the name of the view group.
+     * @param childNames    names of views in it.
+     * @return  the view group added to Jenkins.
+     * @throws Exception
+     */
+    @SuppressWarnings("deprecation")
+    private View createViewGroup(String name, String... childNames) throws Exception
+    {
+        // TreeView is a view group available in the core.
+        StringBuilder children = new StringBuilder();
+        for(String childName: childNames)
+        {
+            children.append(Jenkins.XSTREAM.toXML(new ListView(childName)));
+        }
+        String xml = String.format("<hudson.model.TreeView><views>%s</views></hudson.model.TreeView>", children);
+        View view = View.createViewFromXML(name, new ByteArrayInputStream(xml.getBytes("UTF-8")));
+        j.jenkins.addView(view);
+        return view;
+    }
+    
+    @Test
+    public void testUpdatedOnGroupCopy() throws Exception
+    {
+        createViewGroup("release-1", "nightly");
+        View destView = createViewGroup("release-2", "nightly", "obsolete");
+        assertNotNull(ViewIndex.getView("release-2/obsolete"));
+        
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.getBuildersList().add(new ViewcopyBuilder(
+                "release-1",
+                "release-2",
+                true,
+                Arrays.<ViewcopyOperation>asList(),
+                XmlLogLevel.NONE,
+                null,
+                null,
+                null,
+                true
+        ));
+        j.assertBuildStatusSuccess(p.scheduleBuild2(0));
+        
+        // views removed from the view group are removed from the index.
+        assertNull(ViewIndex.getView("release-2/obsolete"));
+        assertSame(((ViewGroup)destView).getView("nightly"), ViewIndex.getView("release-2/nightly"));
+    }
+    
+    @Test
+    public void testGetViewInPrimaryView() throws Exception
+    {
+        View primaryView = createViewGroup("team", "nightly");
+        j.jenkins.setPrimaryView(primaryView);
+        
+        // looked up in the primary view as Jenkins#getView does.
+        View view = ViewIndex.getView("nightly");
+        assertNotNull(view);
+        assertSame(j.jenkins.getView("nightly"), view);
+        assertSame(view, ViewIndex.getView("team/nightly"));
+    }
+    
+    @Test
+    public void testUpdatedOnReload() throws Exception
+    {
+        j.jenkins.addView(new ListView("SrcView"));
+        View destView = new ListView("DestView");
+        j.jenkins.addView(destView);
+        assertSame(destView, ViewIndex.getView("DestView"));
+        assertEquals(Arrays.asList("DestView", "SrcView"), ViewIndex.findPaths(null, 10));
+        
+        // views are replaced without saved.
+        j.jenkins.reload();
+        View reloadedView = j.jenkins.getView("DestView");
+        assertNotSame(destView, reloadedView);
+        assertSame(reloadedView, ViewIndex.getView("DestView"));
+        assertEquals(Arrays.asList("DestView", "SrcView"), ViewIndex.findPaths(null, 10));
+        
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.getBuildersList().add(new ViewcopyBuilder(
+                "SrcView",
+                "DestView",
+                true,
+                Arrays.<ViewcopyOperation>asList(
+                        new SetDescriptionOperation("Copied after reload")
+                )
+        ));
+        j.assertBuildStatusSuccess(p.scheduleBuild2(0));
+        
+        assertEquals("Copied after reload", j.jenkins.getView("DestView").getDescription());
+    }
+}
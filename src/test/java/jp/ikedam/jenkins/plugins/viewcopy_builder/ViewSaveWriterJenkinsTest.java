@@ -0,0 +1,188 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import hudson.XmlFile;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import jenkins.model.Jenkins;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.TestExtension;
+
+/**
+ *
+ */
+public class ViewSaveWriterJenkinsTest
+{
+    @Rule
+    public MyJenkinsRule j = new MyJenkinsRule();
+    
+    @TestExtension
+    public static class JenkinsSaveCounter extends SaveableListener
+    {
+        public AtomicInteger count = new AtomicInteger();
+        
+        @Override
+        public void onChange(Saveable o, XmlFile file)
+        {
+            if(o instanceof Jenkins)
+            {
+                count.incrementAndGet();
+            }
+        }
+    }
+    
+    private JenkinsSaveCounter getCounter()
+    {
+        return j.jenkins.getExtensionList(SaveableListener.class).get(JenkinsSaveCounter.class);
+    }
+    
+    @Test
+    public void testSave() throws Exception
+    {
+        int saves = getCounter().count.get();
+        ViewSaveWriter.save(j.jenkins);
+        assertEquals(saves + 1, getCounter().count.get());
+    }
+    
+    @Test
+    public void testSaveCoalesced() throws Exception
+    {
+        long coalesced = ViewSaveWriter.getTotalSavesCoalesced();
+        int saves = getCounter().count.get();
+        
+        // Keep the writer busy.
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Saveable blocker = new Saveable()
+        {
+            public void save() throws IOException
+            {
+                started.countDown();
+                try
+                {
+                    release.await();
+                }
+                catch(InterruptedException e)
+                {
+                    throw new IOException(e);
+                }
+            }
+        };
+        final List<Exception> errors = new ArrayList<Exception>();
+        Thread blockerThread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    ViewSaveWriter.save(blocker);
+                }
+                catch(Exception e)
+                {
+                    synchronized(errors)
+                    {
+                        errors.add(e);
+                    }
+                }
+            }
+        };
+        blockerThread.start();
+        started.await();
+        
+        List<Thread> threads = new ArrayList<Thread>();
+        for(int i = 0; i < 3; ++i)
+        {
+            Thread t = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        ViewSaveWriter.save(j.jenkins);
+                    }
+                    catch(Exception e)
+                    {
+                        synchronized(errors)
+                        {
+                            errors.add(e);
+                        }
+                    }
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+        while(ViewSaveWriter.getPendingCount() < 3)
+        {
+            Thread.sleep(10);
+        }
+        // not saved until the writer gets free.
+        assertEquals(saves, getCounter().count.get());
+        
+        release.countDown();
+        blockerThread.join(10000);
+        for(Thread t: threads)
+        {
+            t.join(10000);
+        }
+        
+        assertEquals(Collections.<Exception>emptyList(), errors);
+        assertEquals(saves + 1, getCounter().count.get());
+        assertEquals(coalesced + 2, ViewSaveWriter.getTotalSavesCoalesced());
+    }
+    
+    @Test
+    public void testSaveFailure() throws Exception
+    {
+        try
+        {
+            ViewSaveWriter.save(new Saveable()
+            {
+                public void save() throws IOException
+                {
+                    throw new IOException("test");
+                }
+            });
+            fail();
+        }
+        catch(IOException e)
+        {
+            assertEquals("test", e.getCause().getMessage());
+        }
+    }
+}
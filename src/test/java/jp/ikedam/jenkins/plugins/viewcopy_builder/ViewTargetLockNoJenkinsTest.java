@@ -0,0 +1,163 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ *
+ */
+public class ViewTargetLockNoJenkinsTest
+{
+    @Test
+    public void testLockSamePath() throws Exception
+    {
+        final String path = "ViewTargetLockNoJenkinsTest1";
+        long contended = ViewTargetLock.getTotalContended();
+        long waitMillis = ViewTargetLock.getTotalWaitMillis();
+        
+        assertEquals(0, ViewTargetLock.lock(path));
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicLong waited = new AtomicLong(-1);
+        Thread t = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                started.countDown();
+                try
+                {
+                    waited.set(ViewTargetLock.lock(path));
+                    ViewTargetLock.unlock(path);
+                }
+                catch(InterruptedException e)
+                {
+                    // test fails with waited not set.
+                }
+            }
+        };
+        try
+        {
+            t.start();
+            started.await();
+            // the other thread must wait for this thread.
+            Thread.sleep(200);
+            assertTrue(t.isAlive());
+            assertEquals(-1, waited.get());
+        }
+        finally
+        {
+            ViewTargetLock.unlock(path);
+        }
+        t.join(10000);
+        
+        assertTrue(waited.get() >= 100);
+        assertEquals(contended + 1, ViewTargetLock.getTotalContended());
+        assertTrue(waitMillis + waited.get() <= ViewTargetLock.getTotalWaitMillis());
+    }
+    
+    @Test
+    public void testLockDifferentPath() throws Exception
+    {
+        String path1 = "ViewTargetLockNoJenkinsTest1";
+        String path2 = "ViewTargetLockNoJenkinsTest2";
+        assertNotSame(ViewTargetLock.getLock(path1), ViewTargetLock.getLock(path2));
+        
+        ViewTargetLock.lock(path1);
+        try
+        {
+            final String path = path2;
+            final AtomicLong waited = new AtomicLong(-1);
+            Thread t = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        waited.set(ViewTargetLock.lock(path));
+                        ViewTargetLock.unlock(path);
+                    }
+                    catch(InterruptedException e)
+                    {
+                        // test fails with waited not set.
+                    }
+                }
+            };
+            t.start();
+            t.join(10000);
+            
+            // the other path is not blocked.
+            assertEquals(0, waited.get());
+        }
+        finally
+        {
+            ViewTargetLock.unlock(path1);
+        }
+    }
+    
+    @Test
+    public void testLockInterrupted() throws Exception
+    {
+        final String path = "ViewTargetLockNoJenkinsTest1";
+        final AtomicLong result = new AtomicLong(0);
+        ViewTargetLock.lock(path);
+        Thread t = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    ViewTargetLock.lock(path);
+                    ViewTargetLock.unlock(path);
+                    result.set(1);
+                }
+                catch(InterruptedException e)
+                {
+                    result.set(2);
+                }
+            }
+        };
+        try
+        {
+            t.start();
+            Thread.sleep(100);
+            t.interrupt();
+            t.join(10000);
+        }
+        finally
+        {
+            ViewTargetLock.unlock(path);
+        }
+        
+        // aborted builds stop waiting.
+        assertEquals(2, result.get());
+    }
+}
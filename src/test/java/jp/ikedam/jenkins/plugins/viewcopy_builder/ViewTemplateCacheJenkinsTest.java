@@ -0,0 +1,204 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import static org.junit.Assert.*;
+import hudson.model.FreeStyleProject;
+import hudson.model.ListView;
+import hudson.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ *
+ */
+public class ViewTemplateCacheJenkinsTest
+{
+    @Rule
+    public MyJenkinsRule j = new MyJenkinsRule();
+    
+    @Test
+    public void testGetDocument() throws Exception
+    {
+        ListView view = new ListView("TemplateView");
+        j.jenkins.addView(view);
+        
+        Document doc1 = ViewTemplateCache.getDocument(view);
+        assertTrue(ViewTemplateCache.isCached(view));
+        
+        // the cached document is never modified.
+        doc1.getDocumentElement().setAttribute("test", "value");
+        
+        Document doc2 = ViewTemplateCache.getDocument(view);
+        assertNotSame(doc1, doc2);
+        assertEquals(doc1.getDocumentElement().getNodeName(), doc2.getDocumentElement().getNodeName());
+        assertFalse(doc2.getDocumentElement().hasAttribute("test"));
+    }
+    
+    @Test
+    public void testGetDocumentConcurrently() throws Exception
+    {
+        final ListView view = new ListView("TemplateView");
+        view.setIncludeRegex("job.*");
+        j.jenkins.addView(view);
+        
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            List<Future<Document>> results = new ArrayList<Future<Document>>();
+            for(int i = 0; i < threads; ++i)
+            {
+                results.add(executor.submit(new Callable<Document>()
+                {
+                    public Document call() throws Exception
+                    {
+                        start.await();
+                        return ViewTemplateCache.getDocument(view);
+                    }
+                }));
+            }
+            start.countDown();
+            
+            List<Document> docs = new ArrayList<Document>();
+            for(Future<Document> result: results)
+            {
+                Document doc = result.get();
+                // each caller gets its own copy.
+                for(Document other: docs)
+                {
+                    assertNotSame(other, doc);
+                }
+                assertTrue(XmlFingerprint.isSame(ViewTemplateCache.getDocument(view), doc));
+                docs.add(doc);
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        assertTrue(ViewTemplateCache.isCached(view));
+    }
+    
+    @Test
+    public void testInvalidatedOnSave() throws Exception
+    {
+        ListView view = new ListView("TemplateView");
+        j.jenkins.addView(view);
+        
+        ViewTemplateCache.getDocument(view);
+        assertTrue(ViewTemplateCache.isCached(view));
+        
+        view.save();
+        assertFalse(ViewTemplateCache.isCached(view));
+    }
+    
+    @Test
+    public void testNotInvalidatedOnOtherSaves() throws Exception
+    {
+        ListView view = new ListView("TemplateView");
+        j.jenkins.addView(view);
+        
+        ViewTemplateCache.getDocument(view);
+        assertTrue(ViewTemplateCache.isCached(view));
+        
+        // objects never containing views.
+        User.get("test").save();
+        j.createFreeStyleProject().save();
+        j.jenkins.getDescriptorOrDie(ViewcopyBuilder.class).save();
+        assertTrue(ViewTemplateCache.isCached(view));
+    }
+    
+    @Test
+    public void testOwnSave() throws Exception
+    {
+        ListView view1 = new ListView("TemplateView1");
+        j.jenkins.addView(view1);
+        ListView view2 = new ListView("TemplateView2");
+        j.jenkins.addView(view2);
+        
+        ViewTemplateCache.getDocument(view1);
+        ViewTemplateCache.getDocument(view2);
+        
+        ViewSaveTracker.beginOwnSave();
+        try
+        {
+            view1.save();
+            assertTrue(ViewTemplateCache.isCached(view1));
+            assertTrue(ViewTemplateCache.isCached(view2));
+        }
+        finally
+        {
+            ViewSaveTracker.endOwnSave(view1);
+        }
+        
+        // only the saved view is discarded.
+        assertFalse(ViewTemplateCache.isCached(view1));
+        assertTrue(ViewTemplateCache.isCached(view2));
+    }
+    
+    @Test
+    public void testCopyAfterTemplateChanged() throws Exception
+    {
+        ListView templateView = new ListView("TemplateView");
+        j.jenkins.addView(templateView);
+        
+        FreeStyleProject copier = j.createFreeStyleProject();
+        copier.getBuildersList().add(new ViewcopyBuilder(
+                templateView.getViewName(),
+                "DestView",
+                true,
+                Arrays.<ViewcopyOperation>asList()
+        ));
+        j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        assertTrue(ViewTemplateCache.isCached(templateView));
+        
+        // Change the template by copying to it.
+        FreeStyleProject updater = j.createFreeStyleProject();
+        updater.getBuildersList().add(new ViewcopyBuilder(
+                templateView.getViewName(),
+                templateView.getViewName(),
+                true,
+                Arrays.<ViewcopyOperation>asList(
+                        new SetDescriptionOperation("Changed description.")
+                )
+        ));
+        j.assertBuildStatusSuccess(updater.scheduleBuild2(0));
+        
+        j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        assertEquals("Changed description.", j.jenkins.getView("DestView").getDescription());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import static org.junit.Assert.*;
+import hudson.XmlFile;
+import hudson.model.ListView;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import jenkins.model.Jenkins;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.TestExtension;
+
+/**
+ *
+ */
+public class ViewWriteBatchJenkinsTest
+{
+    @Rule
+    public MyJenkinsRule j = new MyJenkinsRule();
+    
+    @TestExtension
+    public static class JenkinsSaveCounter extends SaveableListener
+    {
+        public int count = 0;
+        
+        @Override
+        public void onChange(Saveable o, XmlFile file)
+        {
+            if(o instanceof Jenkins)
+            {
+                ++count;
+            }
+        }
+    }
+    
+    private JenkinsSaveCounter getCounter()
+    {
+        return j.jenkins.getExtensionList(SaveableListener.class).get(JenkinsSaveCounter.class);
+    }
+    
+    @Test
+    public void testCommit() throws Exception
+    {
+        long totalSavesAvoided = ViewWriteBatch.getTotalSavesAvoided();
+        int saves = getCounter().count;
+        
+        ViewWriteBatch batch = new ViewWriteBatch(j.jenkins);
+        try
+        {
+            for(int i = 0; i < 3; ++i)
+            {
+                j.jenkins.addView(new ListView(String.format("view%d", i)));
+                batch.written();
+            }
+            // saves are deferred.
+            assertEquals(saves, getCounter().count);
+        }
+        finally
+        {
+            assertEquals(2, batch.commit());
+        }
+        
+        assertEquals(saves + 1, getCounter().count);
+        assertEquals(totalSavesAvoided + 2, ViewWriteBatch.getTotalSavesAvoided());
+    }
+    
+    @Test
+    public void testCommitNoWrites() throws Exception
+    {
+        int saves = getCounter().count;
+        
+        ViewWriteBatch batch = new ViewWriteBatch(j.jenkins);
+        assertEquals(0, batch.commit());
+        
+        assertEquals(saves, getCounter().count);
+    }
+}
@@ -26,25 +26,39 @@ package jp.ikedam.jenkins.plugins.viewcopy_builder;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.Future;
 
 import jp.ikedam.jenkins.plugins.viewcopy_builder.ViewcopyBuilder.DescriptorImpl;
 
 import hudson.EnvVars;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.AutoCompletionCandidates;
+import hudson.model.BuildListener;
 import hudson.model.Cause;
+import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
 import hudson.model.ListView;
 import hudson.model.ParametersAction;
 import hudson.model.StringParameterValue;
+import hudson.model.View;
+import hudson.model.ViewGroup;
 import hudson.model.Result;
-import hudson.util.ComboBoxModel;
 import hudson.util.FormValidation;
 
+import jenkins.model.Jenkins;
+
+import org.apache.commons.lang.StringUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.jvnet.hudson.test.TestBuilder;
 import org.w3c.dom.Document;
 
 /**
@@ -255,6 +269,98 @@ public class ViewcopyBuilderJenkinsTest
     }
     
     
+    @Test
+    public void testPerformUnchanged() throws Exception
+    {
+        FreeStyleProject copier = j.createFreeStyleProject();
+        copier.getBuildersList().add(new ViewcopyBuilder(
+                "SrcView",
+                "DestView",
+                true,
+                Arrays.<ViewcopyOperation>asList(
+                        new SetDescriptionOperation("Generated")
+                )
+        ));
+        copier.save();
+        
+        FreeStyleBuild b = j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        j.assertLogContains("Creating DestView", b);
+        assertFalse(b.getAction(CopiedviewinfoAction.class).isUnchanged());
+        View destView = j.jenkins.getView("DestView");
+        
+        // the same configuration is not written again.
+        b = j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        j.assertLogContains("Unchanged: DestView", b);
+        assertFalse(b.getLog().contains("Updating DestView"));
+        assertTrue(b.getAction(CopiedviewinfoAction.class).isUnchanged());
+        assertSame(destView, j.jenkins.getView("DestView"));
+        
+        // written when changed.
+        ((ListView)j.jenkins.getView("SrcView")).add(j.createFreeStyleProject());
+        b = j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        j.assertLogContains("Updating DestView", b);
+        assertFalse(b.getAction(CopiedviewinfoAction.class).isUnchanged());
+    }
+    
+    @Test
+    public void testPerformSaveFailure() throws Exception
+    {
+        FreeStyleProject copier = j.createFreeStyleProject();
+        copier.getBuildersList().add(new ViewcopyBuilder(
+                "SrcView",
+                "DestView",
+                false,
+                Collections.<ViewcopyOperation>emptyList()
+        ));
+        copier.save();
+        
+        // config.xml cannot be replaced with a directory not empty.
+        File config = new File(j.jenkins.getRootDir(), "config.xml");
+        assertTrue(config.delete());
+        assertTrue(new File(config, "dummy").mkdirs());
+        try
+        {
+            FreeStyleBuild b = j.assertBuildStatus(Result.FAILURE, copier.scheduleBuild2(0).get());
+            j.assertLogContains("Failed to save views.", b);
+            // views are copied in memory.
+            assertNotNull(j.jenkins.getView("DestView"));
+        }
+        finally
+        {
+            assertTrue(new File(config, "dummy").delete());
+            assertTrue(config.delete());
+            j.jenkins.save();
+        }
+    }
+    
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testPerformWhitespaceDescriptionChanged() throws Exception
+    {
+        View srcView = View.createViewFromXML("WhitespaceView", new ByteArrayInputStream(
+                "<hudson.model.ListView><description> </description></hudson.model.ListView>".getBytes("UTF-8")
+        ));
+        j.jenkins.addView(srcView);
+        View destView = View.createViewFromXML("DestView", new ByteArrayInputStream(
+                "<hudson.model.ListView><description>  </description></hudson.model.ListView>".getBytes("UTF-8")
+        ));
+        j.jenkins.addView(destView);
+        
+        FreeStyleProject copier = j.createFreeStyleProject();
+        copier.getBuildersList().add(new ViewcopyBuilder(
+                "WhitespaceView",
+                "DestView",
+                true,
+                Collections.<ViewcopyOperation>emptyList()
+        ));
+        copier.save();
+        
+        // descriptions only with whitespaces are values, not indents.
+        FreeStyleBuild b = j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        j.assertLogContains("Updating DestView", b);
+        assertEquals(" ", j.jenkins.getView("DestView").getDescription());
+    }
+    
     @Test
     public void testSelfCopy() throws Exception
     {
@@ -281,6 +387,415 @@ public class ViewcopyBuilderJenkinsTest
         assertTrue(srcView.getItems().contains(p));
     }
     
+    @Test
+    public void testPerformLargeView() throws Exception
+    {
+        // larger than the buffer of PipedInputStream (1024 bytes).
+        String description = StringUtils.repeat("0123456789", 1000);
+        
+        // the configuration gets large when written.
+        {
+            FreeStyleProject copier = j.createFreeStyleProject();
+            copier.getBuildersList().add(new ViewcopyBuilder(
+                    "SrcView",
+                    "DestView",
+                    false,
+                    Arrays.<ViewcopyOperation>asList(
+                            new SetDescriptionOperation(description)
+                    )
+            ));
+            copier.save();
+            
+            j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+            
+            ListView destView = (ListView)j.jenkins.getView("DestView");
+            assertNotNull(destView);
+            assertEquals(description, destView.getDescription());
+        }
+        
+        // the configuration is large when fetched.
+        {
+            FreeStyleProject copier = j.createFreeStyleProject();
+            copier.getBuildersList().add(new ViewcopyBuilder(
+                    "DestView",
+                    "DestView2",
+                    false,
+                    Collections.<ViewcopyOperation>emptyList()
+            ));
+            copier.save();
+            
+            j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+            
+            ListView destView = (ListView)j.jenkins.getView("DestView2");
+            assertNotNull(destView);
+            assertEquals(description, destView.getDescription());
+        }
+    }
+    
+    @Test
+    public void testPerformMultipleTargets() throws Exception
+    {
+        FreeStyleProject copier = j.createFreeStyleProject();
+        copier.getBuildersList().add(new ViewcopyBuilder(
+                "SrcView",
+                "DestView",
+                false,
+                Arrays.<ViewcopyOperation>asList(
+                        new SetDescriptionOperation("Branch ${BRANCH}")
+                ),
+                XmlLogLevel.NONE,
+                Arrays.asList(
+                        new ViewcopyTarget("feature-${BRANCH}", "BRANCH=a"),
+                        new ViewcopyTarget("feature-${BRANCH}", "BRANCH=b-${BUILD_NUMBER}\n# comment\n")
+                )
+        ));
+        copier.save();
+        
+        j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        
+        ListView destView = (ListView)j.jenkins.getView("DestView");
+        assertNotNull(destView);
+        // undefined variables are left as they are.
+        assertEquals("Branch ${BRANCH}", destView.getDescription());
+        
+        // Jenkins is saved only once.
+        j.assertLogContains("Saved 3 views at once (2 saves avoided)", copier.getLastBuild());
+        
+        ListView destViewA = (ListView)j.jenkins.getView("feature-a");
+        assertNotNull(destViewA);
+        assertEquals("Branch a", destViewA.getDescription());
+        
+        ListView destViewB = (ListView)j.jenkins.getView("feature-b-1");
+        assertNotNull(destViewB);
+        assertEquals("Branch b-1", destViewB.getDescription());
+        
+        // views are copied only with the additional views.
+        FreeStyleProject copier2 = j.createFreeStyleProject();
+        copier2.getBuildersList().add(new ViewcopyBuilder(
+                "SrcView",
+                null,
+                false,
+                Arrays.<ViewcopyOperation>asList(
+                        new SetDescriptionOperation("Branch ${BRANCH}")
+                ),
+                XmlLogLevel.NONE,
+                Arrays.asList(
+                        new ViewcopyTarget("feature-${BRANCH}", "BRANCH=c")
+                )
+        ));
+        copier2.save();
+        
+        j.assertBuildStatusSuccess(copier2.scheduleBuild2(0));
+        
+        ListView destViewC = (ListView)j.jenkins.getView("feature-c");
+        assertNotNull(destViewC);
+        assertEquals("Branch c", destViewC.getDescription());
+    }
+    
+    @Test
+    public void testPerformBindingsFile() throws Exception
+    {
+        FreeStyleProject copier = j.createFreeStyleProject();
+        copier.getBuildersList().add(new TestBuilder()
+        {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
+                throws InterruptedException, IOException
+            {
+                build.getWorkspace().child("bindings.csv").write(
+                        "BRANCH,DESCRIPTION\n"
+                        + "a,\"Branch a\"\n"
+                        + "b,\"Branch b\"\n",
+                        "UTF-8"
+                );
+                build.getWorkspace().child("bindings.json").write(
+                        "{\"BRANCH\": \"c\", \"DESCRIPTION\": \"Branch c\"}\n"
+                        // fails for the view already exists.
+                        + "{\"BRANCH\": \"a\", \"DESCRIPTION\": \"Branch a2\"}\n"
+                        // fails for the malformed line.
+                        + "{\"BRANCH\": \"x\", \"DESCRIPTION\": \n"
+                        + "{\"BRANCH\": \"d\", \"DESCRIPTION\": \"Branch d\"}\n",
+                        "UTF-8"
+                );
+                return true;
+            }
+        });
+        copier.getBuildersList().add(new ViewcopyBuilder(
+                "SrcView",
+                "feature-${BRANCH}",
+                false,
+                Arrays.<ViewcopyOperation>asList(
+                        new SetDescriptionOperation("${DESCRIPTION}")
+                ),
+                XmlLogLevel.NONE,
+                null,
+                "bindings.csv",
+                BindingsFileFormat.CSV
+        ));
+        copier.save();
+        
+        j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        
+        assertEquals("Branch a", j.jenkins.getView("feature-a").getDescription());
+        assertEquals("Branch b", j.jenkins.getView("feature-b").getDescription());
+        
+        copier.getBuildersList().remove(ViewcopyBuilder.class);
+        copier.getBuildersList().add(new ViewcopyBuilder(
+                "SrcView",
+                "feature-${BRANCH}",
+                false,
+                Arrays.<ViewcopyOperation>asList(
+                        new SetDescriptionOperation("${DESCRIPTION}")
+                ),
+                XmlLogLevel.NONE,
+                null,
+                "bindings.json",
+                BindingsFileFormat.JSON_LINES
+        ));
+        copier.save();
+        
+        // a failure in a row does not stop following rows.
+        FreeStyleBuild b = copier.scheduleBuild2(0).get();
+        j.assertBuildStatus(Result.FAILURE, b);
+        j.assertLogContains("4 rows processed, 2 failed", b);
+        j.assertLogContains("Row 3: failed: Line 3:", b);
+        assertEquals("Branch c", j.jenkins.getView("feature-c").getDescription());
+        assertEquals("Branch a", j.jenkins.getView("feature-a").getDescription());
+        assertEquals("Branch d", j.jenkins.getView("feature-d").getDescription());
+    }
+    
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testPerformRecursive() throws Exception
+    {
+        // TreeView is a view group available in the core.
+        String xml = String.format(
+                "<hudson.model.TreeView><views>%s%s</views></hudson.model.TreeView>",
+                Jenkins.XSTREAM.toXML(new ListView("release-1-nightly")),
+                Jenkins.XSTREAM.toXML(new ListView("release-1-weekly"))
+        );
+        View srcView = View.createViewFromXML("release-1", new ByteArrayInputStream(xml.getBytes("UTF-8")));
+        j.jenkins.addView(srcView);
+        assertEquals(2, ((ViewGroup)srcView).getViews().size());
+        
+        FreeStyleProject copier = j.createFreeStyleProject();
+        copier.getBuildersList().add(new ViewcopyBuilder(
+                "release-1",
+                "release-2",
+                false,
+                Arrays.<ViewcopyOperation>asList(
+                        new ReplaceOperation("release-1", false, "release-2", false),
+                        new SetRegexOperation("release-2-.*")
+                ),
+                XmlLogLevel.NONE,
+                null,
+                null,
+                null,
+                true
+        ));
+        copier.save();
+        
+        FreeStyleBuild b = j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        j.assertLogContains("Transformed 3 views", b);
+        // SetRegexOperation is applicable only to ListView.
+        j.assertLogContains("is not applicable to release-1(hudson.model.TreeView), skipped", b);
+        
+        View destView = j.jenkins.getView("release-2");
+        assertNotNull(destView);
+        assertTrue(destView instanceof ViewGroup);
+        
+        ListView destChild1 = (ListView)((ViewGroup)destView).getView("release-2-nightly");
+        assertNotNull(destChild1);
+        assertEquals("release-2-.*", destChild1.getIncludeRegex());
+        ListView destChild2 = (ListView)((ViewGroup)destView).getView("release-2-weekly");
+        assertNotNull(destChild2);
+        assertEquals("release-2-.*", destChild2.getIncludeRegex());
+        
+        // the view copied from is not modified.
+        assertNotNull(((ViewGroup)srcView).getView("release-1-nightly"));
+        assertNull(((ListView)((ViewGroup)srcView).getView("release-1-nightly")).getIncludeRegex());
+    }
+    
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testPerformRecursiveSameNameInNestedGroup() throws Exception
+    {
+        // a nested view group precedes a view with the same name and class
+        // as a view in the nested one.
+        String xml = String.format(
+                "<hudson.model.TreeView><views><hudson.model.TreeView><name>group</name><views>%s</views></hudson.model.TreeView>%s</views></hudson.model.TreeView>",
+                Jenkins.XSTREAM.toXML(new ListView("nightly")).replace("<name>nightly</name>", "<name>nightly</name><includeRegex>nested</includeRegex>"),
+                Jenkins.XSTREAM.toXML(new ListView("nightly"))
+        );
+        View srcView = View.createViewFromXML("release-1", new ByteArrayInputStream(xml.getBytes("UTF-8")));
+        j.jenkins.addView(srcView);
+        assertEquals(2, ((ViewGroup)srcView).getViews().size());
+        
+        FreeStyleProject copier = j.createFreeStyleProject();
+        copier.getBuildersList().add(new ViewcopyBuilder(
+                "release-1",
+                "release-2",
+                false,
+                Arrays.<ViewcopyOperation>asList(
+                        new SetDescriptionOperation("Copied")
+                ),
+                XmlLogLevel.NONE,
+                null,
+                null,
+                null,
+                true
+        ));
+        copier.save();
+        
+        FreeStyleBuild b = j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        j.assertLogContains("Transformed 4 views", b);
+        
+        ViewGroup destView = (ViewGroup)j.jenkins.getView("release-2");
+        assertNotNull(destView);
+        assertEquals(2, destView.getViews().size());
+        
+        // each view stays at its own level.
+        ListView destChild = (ListView)destView.getView("nightly");
+        assertNotNull(destChild);
+        assertNull(destChild.getIncludeRegex());
+        ViewGroup destGroup = (ViewGroup)destView.getView("group");
+        assertNotNull(destGroup);
+        ListView destNested = (ListView)destGroup.getView("nightly");
+        assertNotNull(destNested);
+        assertEquals("nested", destNested.getIncludeRegex());
+        assertEquals("Copied", destNested.getDescription());
+    }
+    
+    @Test
+    public void testPerformTransformOnAgent() throws Exception
+    {
+        ListView srcView = new ListView("SrcView");
+        srcView.setIncludeRegex("src-.*");
+        j.jenkins.addView(srcView);
+        
+        FreeStyleProject copier = j.createFreeStyleProject();
+        copier.setAssignedNode(j.createOnlineSlave());
+        copier.getBuildersList().add(new ViewcopyBuilder(
+                "SrcView",
+                "DestView",
+                false,
+                Arrays.<ViewcopyOperation>asList(
+                        new ReplaceOperation("src-", false, "dest-", false),
+                        new SetDescriptionOperation("Copied on the node")
+                ),
+                XmlLogLevel.NONE,
+                null,
+                null,
+                null,
+                false,
+                true
+        ));
+        copier.save();
+        
+        FreeStyleBuild b = j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        j.assertLogContains("Applied operations on slave", b);
+        
+        ListView destView = (ListView)j.jenkins.getView("DestView");
+        assertNotNull(destView);
+        assertEquals("dest-.*", destView.getIncludeRegex());
+        assertEquals("Copied on the node", destView.getDescription());
+    }
+    
+    @Test
+    public void testPerformXmlLogLevel() throws Exception
+    {
+        // Full
+        {
+            FreeStyleProject copier = j.createFreeStyleProject();
+            copier.getBuildersList().add(new ViewcopyBuilder(
+                    "SrcView",
+                    "DestView",
+                    true,
+                    Collections.<ViewcopyOperation>emptyList(),
+                    XmlLogLevel.FULL
+            ));
+            copier.save();
+            
+            FreeStyleBuild b = j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+            j.assertLogContains("Original xml:", b);
+            j.assertLogContains("<hudson.model.ListView>", b);
+        }
+        
+        // Preview
+        {
+            FreeStyleProject copier = j.createFreeStyleProject();
+            copier.getBuildersList().add(new ViewcopyBuilder(
+                    "SrcView",
+                    "DestView",
+                    true,
+                    Arrays.<ViewcopyOperation>asList(
+                            new SetDescriptionOperation(StringUtils.repeat("0123456789", 1000))
+                    ),
+                    XmlLogLevel.PREVIEW
+            ));
+            copier.save();
+            
+            FreeStyleBuild b = j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+            j.assertLogContains("Original xml:", b);
+            j.assertLogContains("<hudson.model.ListView>", b);
+            j.assertLogContains("... (truncated to 4096 characters)", b);
+        }
+        
+        // Changes only
+        {
+            FreeStyleProject copier = j.createFreeStyleProject();
+            copier.getBuildersList().add(new ViewcopyBuilder(
+                    "SrcView",
+                    "DestView",
+                    true,
+                    Arrays.<ViewcopyOperation>asList(
+                            new SetDescriptionOperation("testtesttest")
+                    ),
+                    XmlLogLevel.DIFF
+            ));
+            copier.save();
+            
+            FreeStyleBuild b = j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+            j.assertLogContains("Original xml: hudson.model.ListView", b);
+            j.assertLogContains("/hudson.model.ListView/description", b);
+            j.assertLogContains("\"testtesttest\"", b);
+            assertFalse(b.getLog().contains("<hudson.model.ListView>"));
+        }
+        
+        // Summary
+        {
+            FreeStyleProject copier = j.createFreeStyleProject();
+            copier.getBuildersList().add(new ViewcopyBuilder(
+                    "SrcView",
+                    "DestView",
+                    true,
+                    Collections.<ViewcopyOperation>emptyList(),
+                    XmlLogLevel.SUMMARY
+            ));
+            copier.save();
+            
+            FreeStyleBuild b = j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+            j.assertLogContains("Original xml: hudson.model.ListView", b);
+            assertFalse(b.getLog().contains("<hudson.model.ListView>"));
+        }
+        
+        // None
+        {
+            FreeStyleProject copier = j.createFreeStyleProject();
+            copier.getBuildersList().add(new ViewcopyBuilder(
+                    "SrcView",
+                    "DestView",
+                    true,
+                    Collections.<ViewcopyOperation>emptyList(),
+                    XmlLogLevel.NONE
+            ));
+            copier.save();
+            
+            FreeStyleBuild b = j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+            assertFalse(b.getLog().contains("Original xml"));
+        }
+    }
+    
     @SuppressWarnings("deprecation")
     @Test
     public void testPerformFailureForConfiguration() throws Exception
@@ -563,14 +1078,147 @@ public class ViewcopyBuilderJenkinsTest
     }
     
     @Test
-    public void testDescriptor_doFillFromViewNameItems() throws Exception
+    public void testDescriptor_doAutoCompleteFromViewName() throws Exception
     {
         DescriptorImpl descriptor = getDescriptor();
         
-        ComboBoxModel c = descriptor.doFillFromViewNameItems();
-        assertEquals(2, c.size());
-        assertTrue(c.contains("SrcView"));
-        assertTrue(c.contains("ExistingView"));
+        AutoCompletionCandidates c = descriptor.doAutoCompleteFromViewName(null);
+        assertEquals(Arrays.asList("ExistingView", "SrcView"), c.getValues());
+        
+        j.jenkins.addView(new ListView("viewSrc"));
+        
+        // views starting with the input come first.
+        c = descriptor.doAutoCompleteFromViewName("src");
+        assertEquals(Arrays.asList("SrcView", "viewSrc"), c.getValues());
+        
+        c = descriptor.doAutoCompleteFromViewName("  view  ");
+        assertEquals(Arrays.asList("viewSrc", "ExistingView", "SrcView"), c.getValues());
+        
+        c = descriptor.doAutoCompleteFromViewName("NoSuchView");
+        assertTrue(c.getValues().isEmpty());
+    }
+    
+    @Test
+    public void testDescriptor_doAutoCompleteFromViewNameLimit() throws Exception
+    {
+        DescriptorImpl descriptor = getDescriptor();
+        
+        for(int i = 0; i < 150; ++i)
+        {
+            j.jenkins.addView(new ListView(String.format("View%03d", i)));
+        }
+        
+        AutoCompletionCandidates c = descriptor.doAutoCompleteFromViewName("view");
+        assertEquals(100, c.getValues().size());
+        assertEquals("View000", c.getValues().get(0));
+        assertEquals("View099", c.getValues().get(99));
+        
+        // views beyond the limit are found with their names.
+        c = descriptor.doAutoCompleteFromViewName("View14");
+        assertEquals(10, c.getValues().size());
+        
+        String json = j.createWebClient().goTo(
+                String.format(
+                        "%s/autoCompleteFromViewName?value=View149",
+                        descriptor.getDescriptorUrl()
+                ),
+                "application/json"
+        ).getWebResponse().getContentAsString();
+        assertTrue(json, json.contains("View149"));
+    }
+    
+    @Test
+    public void testDescriptor_doCheckMaxConcurrentCopies() throws Exception
+    {
+        DescriptorImpl descriptor = getDescriptor();
+        
+        assertEquals(FormValidation.Kind.OK, descriptor.doCheckMaxConcurrentCopies(null).kind);
+        assertEquals(FormValidation.Kind.OK, descriptor.doCheckMaxConcurrentCopies("").kind);
+        assertEquals(FormValidation.Kind.OK, descriptor.doCheckMaxConcurrentCopies("0").kind);
+        assertEquals(FormValidation.Kind.OK, descriptor.doCheckMaxConcurrentCopies("  4  ").kind);
+        assertEquals(FormValidation.Kind.ERROR, descriptor.doCheckMaxConcurrentCopies("-1").kind);
+        assertEquals(FormValidation.Kind.ERROR, descriptor.doCheckMaxConcurrentCopies("many").kind);
+    }
+    
+    @Test
+    public void testPerformMaxConcurrentCopies() throws Exception
+    {
+        DescriptorImpl descriptor = getDescriptor();
+        descriptor.setMaxConcurrentCopies(1);
+        try
+        {
+            assertEquals(1, ViewcopyThrottle.getLimit());
+            
+            FreeStyleProject copier = j.createFreeStyleProject();
+            copier.getBuildersList().add(new ViewcopyBuilder(
+                    "SrcView",
+                    "DestView",
+                    false,
+                    Collections.<ViewcopyOperation>emptyList()
+            ));
+            copier.save();
+            
+            // Copies exceeding the limit wait.
+            long waited = descriptor.getCopiesWaited();
+            Future<FreeStyleBuild> future;
+            ViewcopyThrottle.acquire();
+            try
+            {
+                future = copier.scheduleBuild2(0);
+                while(ViewcopyThrottle.getQueueDepth() < 1)
+                {
+                    Thread.sleep(10);
+                }
+                assertEquals(1, descriptor.getCopiesRunning());
+                assertEquals(1, descriptor.getCopiesQueued());
+            }
+            finally
+            {
+                ViewcopyThrottle.release();
+            }
+            
+            FreeStyleBuild b = j.assertBuildStatusSuccess(future);
+            j.assertLogContains("for other copies to finish", b);
+            assertNotNull(j.jenkins.getView("DestView"));
+            assertEquals(waited + 1, descriptor.getCopiesWaited());
+            assertEquals(0, descriptor.getCopiesRunning());
+            assertEquals(0, descriptor.getCopiesQueued());
+        }
+        finally
+        {
+            descriptor.setMaxConcurrentCopies(0);
+        }
+    }
+    
+    @Test
+    public void testDescriptor_throttleStatistics() throws Exception
+    {
+        // displayed in the system configuration page.
+        String page = j.createWebClient().goTo("configure").getWebResponse().getContentAsString();
+        assertTrue(page.contains("Copies Running"));
+        assertTrue(page.contains("Copies Waited"));
+        assertTrue(page.contains("Views Copied To"));
+    }
+    
+    @Test
+    public void testDescriptor_targetLockStatistics() throws Exception
+    {
+        DescriptorImpl descriptor = getDescriptor();
+        long locked = descriptor.getTargetsLocked();
+        
+        FreeStyleProject copier = j.createFreeStyleProject();
+        copier.getBuildersList().add(new ViewcopyBuilder(
+                "SrcView",
+                "DestView",
+                false,
+                Collections.<ViewcopyOperation>emptyList()
+        ));
+        copier.save();
+        j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        
+        assertEquals(locked + 1, descriptor.getTargetsLocked());
+        assertTrue(descriptor.getTargetsContended() <= descriptor.getTargetsLocked());
+        assertTrue(descriptor.getTargetsWaitMillis() >= 0);
     }
     
     @Test
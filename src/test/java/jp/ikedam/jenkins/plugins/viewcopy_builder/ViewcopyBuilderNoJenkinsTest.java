@@ -96,4 +96,39 @@ public class ViewcopyBuilderNoJenkinsTest
             assertNull(builder.getViewcopyOperationList());
         }
     }
+    
+    @Test
+    public void testXmlLogLevel()
+    {
+        {
+            ViewcopyBuilder builder = new ViewcopyBuilder(
+                    "FromView",
+                    "ToView",
+                    true,
+                    null,
+                    XmlLogLevel.SUMMARY
+            );
+            assertEquals(XmlLogLevel.SUMMARY, builder.getXmlLogLevel());
+        }
+        {
+            // not specified (e.g. saved in older versions)
+            ViewcopyBuilder builder = new ViewcopyBuilder(
+                    "FromView",
+                    "ToView",
+                    true,
+                    null,
+                    null
+            );
+            assertEquals(XmlLogLevel.FULL, builder.getXmlLogLevel());
+        }
+        {
+            ViewcopyBuilder builder = new ViewcopyBuilder(
+                    "FromView",
+                    "ToView",
+                    true,
+                    null
+            );
+            assertEquals(XmlLogLevel.FULL, builder.getXmlLogLevel());
+        }
+    }
 }
@@ -0,0 +1,138 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import static org.junit.Assert.*;
+import hudson.EnvVars;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.ListView;
+
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class ViewcopyMemoJenkinsTest
+{
+    @Rule
+    public MyJenkinsRule j = new MyJenkinsRule();
+    
+    @Test
+    public void testHash() throws Exception
+    {
+        assertEquals(
+                ViewcopyMemo.hash(Arrays.asList("a", "b")),
+                ViewcopyMemo.hash(Arrays.asList("a", "b"))
+        );
+        assertFalse(ViewcopyMemo.hash(Arrays.asList("a", "b")).equals(ViewcopyMemo.hash(Arrays.asList("ab", ""))));
+        assertFalse(ViewcopyMemo.hash(Arrays.asList("a", null)).equals(ViewcopyMemo.hash(Arrays.asList("a", ""))));
+    }
+    
+    @Test
+    public void testSkipCopy() throws Exception
+    {
+        ListView srcView = new ListView("SrcView");
+        j.jenkins.addView(srcView);
+        
+        FreeStyleProject copier = j.createFreeStyleProject();
+        copier.getBuildersList().add(new ViewcopyBuilder(
+                srcView.getViewName(),
+                "DestView",
+                true,
+                Arrays.<ViewcopyOperation>asList(
+                        new SetDescriptionOperation("Build ${BUILD_NUMBER}")
+                )
+        ));
+        
+        // the first copy to an existing view is remembered.
+        j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        FreeStyleBuild b = j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        j.assertLogContains("Updating DestView", b);
+        assertFalse(b.getAction(CopiedviewinfoAction.class).isUnchanged());
+        
+        // the variable is changed.
+        b = j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        j.assertLogContains("Updating DestView", b);
+        
+        copier.getBuildersList().clear();
+        copier.getBuildersList().add(new ViewcopyBuilder(
+                srcView.getViewName(),
+                "DestView",
+                true,
+                Arrays.<ViewcopyOperation>asList(
+                        new SetDescriptionOperation("Fixed")
+                )
+        ));
+        j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        b = j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        j.assertLogContains("Up to date: DestView", b);
+        assertTrue(b.getAction(CopiedviewinfoAction.class).isUnchanged());
+        // the view copied from is not fetched.
+        assertFalse(b.getLog().contains("Fetching configuration"));
+        
+        // survives restarts.
+        ViewSaveTracker.onLoaded();
+        b = j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        j.assertLogContains("Up to date: DestView", b);
+        
+        // the view copied to is changed.
+        ((ListView)j.jenkins.getView("DestView")).add(j.createFreeStyleProject());
+        b = j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        j.assertLogContains("Updating DestView", b);
+        
+        // the view copied from is changed.
+        srcView.add(j.createFreeStyleProject());
+        b = j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        j.assertLogContains("Updating DestView", b);
+        
+        b = j.assertBuildStatusSuccess(copier.scheduleBuild2(0));
+        j.assertLogContains("Up to date: DestView", b);
+    }
+    
+    @Test
+    public void testGetMemoKey() throws Exception
+    {
+        EnvVars env = new EnvVars("VAR", "value");
+        
+        assertEquals(
+                new ReplaceOperation("${VAR}", true, "to", false).getMemoKey(env),
+                new ReplaceOperation("value", false, "to", false).getMemoKey(env)
+        );
+        assertFalse(
+                new ReplaceOperation("${VAR}", false, "to", false).getMemoKey(env).equals(
+                new ReplaceOperation("value", false, "to", false).getMemoKey(env))
+        );
+        assertEquals(
+                new SetDescriptionOperation("${VAR}").getMemoKey(env),
+                new SetDescriptionOperation("value").getMemoKey(env)
+        );
+        
+        // the result depends on the file in the workspace.
+        assertNull(new ReplaceFromFileOperation("replace.properties", DictionaryFormat.PROPERTIES, null).getMemoKey(env));
+    }
+}
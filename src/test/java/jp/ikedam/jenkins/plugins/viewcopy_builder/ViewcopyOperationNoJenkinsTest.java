@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import static org.junit.Assert.*;
+
+import java.io.PrintStream;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.xml.xpath.XPathExpression;
+
+import hudson.EnvVars;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ *
+ */
+public class ViewcopyOperationNoJenkinsTest
+{
+    public static class TestViewcopyOperation extends ViewcopyOperation
+    {
+        private static final long serialVersionUID = 2319848233472426633L;
+        
+        @Override
+        public Document perform(Document doc, EnvVars env, PrintStream logger)
+        {
+            return doc;
+        }
+    }
+    
+    @Test
+    public void testGetXPathExpression() throws Exception
+    {
+        TestViewcopyOperation target = new TestViewcopyOperation();
+        
+        XPathExpression expr = target.getXPathExpression("/*/description");
+        assertSame(expr, target.getXPathExpression("/*/description"));
+        assertSame(expr, new TestViewcopyOperation().getXPathExpression("/*/description"));
+        assertNotSame(expr, target.getXPathExpression("//text()"));
+    }
+    
+    @Test
+    public void testGetPattern() throws Exception
+    {
+        Pattern pattern = ViewcopyOperation.getPattern("template-(.*)");
+        assertEquals("template-(.*)", pattern.pattern());
+        assertSame(pattern, ViewcopyOperation.getPattern("template-(.*)"));
+        assertNotSame(pattern, ViewcopyOperation.getPattern("template-(.+)"));
+    }
+    
+    @Test(expected=PatternSyntaxException.class)
+    public void testGetPatternInvalid() throws Exception
+    {
+        ViewcopyOperation.getPattern("template-(.*");
+    }
+    
+    @Test
+    public void testGetNodeList() throws Exception
+    {
+        TestViewcopyOperation target = new TestViewcopyOperation();
+        
+        Document doc = XmlToolkit.newDocument();
+        Element root = doc.createElement("root");
+        doc.appendChild(root);
+        root.appendChild(doc.createElement("description")).setTextContent("test");
+        
+        // evaluated twice with the cached expression.
+        for(int i = 0; i < 2; ++i)
+        {
+            NodeList nodeList = target.getNodeList(doc, "/*/description");
+            assertEquals(1, nodeList.getLength());
+            assertEquals("test", nodeList.item(0).getTextContent());
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class ViewcopyThrottleNoJenkinsTest
+{
+    @After
+    public void tearDown()
+    {
+        ViewcopyThrottle.setLimit(0);
+    }
+    
+    private Thread startCopy(final String name, final List<String> started)
+    {
+        Thread t = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    ViewcopyThrottle.acquire();
+                }
+                catch(InterruptedException e)
+                {
+                    return;
+                }
+                try
+                {
+                    started.add(name);
+                }
+                finally
+                {
+                    ViewcopyThrottle.release();
+                }
+            }
+        };
+        t.start();
+        return t;
+    }
+    
+    private void waitForQueueDepth(int depth) throws InterruptedException
+    {
+        while(ViewcopyThrottle.getQueueDepth() < depth)
+        {
+            Thread.sleep(10);
+        }
+    }
+    
+    @Test
+    public void testNoLimit() throws Exception
+    {
+        ViewcopyThrottle.setLimit(0);
+        assertEquals(0, ViewcopyThrottle.acquire());
+        assertEquals(0, ViewcopyThrottle.acquire());
+        assertEquals(2, ViewcopyThrottle.getRunning());
+        ViewcopyThrottle.release();
+        ViewcopyThrottle.release();
+        assertEquals(0, ViewcopyThrottle.getRunning());
+    }
+    
+    @Test
+    public void testLimit() throws Exception
+    {
+        long waited = ViewcopyThrottle.getTotalWaited();
+        ViewcopyThrottle.setLimit(1);
+        
+        List<String> started = Collections.synchronizedList(new ArrayList<String>());
+        ViewcopyThrottle.acquire();
+        Thread t1;
+        Thread t2;
+        try
+        {
+            t1 = startCopy("copy1", started);
+            waitForQueueDepth(1);
+            t2 = startCopy("copy2", started);
+            waitForQueueDepth(2);
+            
+            Thread.sleep(100);
+            assertTrue(started.isEmpty());
+            assertEquals(1, ViewcopyThrottle.getRunning());
+        }
+        finally
+        {
+            ViewcopyThrottle.release();
+        }
+        t1.join(10000);
+        t2.join(10000);
+        
+        // copies start in the order they arrived.
+        assertEquals(2, started.size());
+        assertEquals("copy1", started.get(0));
+        assertEquals("copy2", started.get(1));
+        assertEquals(0, ViewcopyThrottle.getQueueDepth());
+        assertEquals(0, ViewcopyThrottle.getRunning());
+        assertEquals(waited + 2, ViewcopyThrottle.getTotalWaited());
+    }
+    
+    @Test
+    public void testRaiseLimit() throws Exception
+    {
+        ViewcopyThrottle.setLimit(1);
+        
+        List<String> started = Collections.synchronizedList(new ArrayList<String>());
+        ViewcopyThrottle.acquire();
+        try
+        {
+            Thread t = startCopy("copy1", started);
+            waitForQueueDepth(1);
+            
+            // waiting copies start when the limit is raised.
+            ViewcopyThrottle.setLimit(2);
+            t.join(10000);
+            assertEquals(1, started.size());
+        }
+        finally
+        {
+            ViewcopyThrottle.release();
+        }
+    }
+    
+    @Test
+    public void testInterrupted() throws Exception
+    {
+        ViewcopyThrottle.setLimit(1);
+        
+        List<String> started = Collections.synchronizedList(new ArrayList<String>());
+        ViewcopyThrottle.acquire();
+        try
+        {
+            Thread t = startCopy("copy1", started);
+            waitForQueueDepth(1);
+            
+            // aborted builds leave the queue.
+            t.interrupt();
+            t.join(10000);
+            assertTrue(started.isEmpty());
+            assertEquals(0, ViewcopyThrottle.getQueueDepth());
+            assertEquals(1, ViewcopyThrottle.getRunning());
+        }
+        finally
+        {
+            ViewcopyThrottle.release();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ *
+ */
+public class XmlDiffRecorderNoJenkinsTest
+{
+    private Document doc;
+    private Element root;
+    
+    @Before
+    public void setUp() throws Exception
+    {
+        doc = XmlToolkit.newDocument();
+        root = doc.createElement("view");
+        doc.appendChild(root);
+        root.appendChild(doc.createElement("description")).setTextContent("old description");
+        Element jobNames = doc.createElement("jobNames");
+        root.appendChild(jobNames);
+        jobNames.appendChild(doc.createElement("string")).setTextContent("job1");
+        jobNames.appendChild(doc.createElement("string")).setTextContent("job2");
+    }
+    
+    @Test
+    public void testNoChanges() throws Exception
+    {
+        XmlDiffRecorder recorder = XmlDiffRecorder.start(doc);
+        assertNotNull(recorder);
+        assertSame(doc, recorder.getDocument());
+        
+        // modified to the same value.
+        Node text = doc.getElementsByTagName("description").item(0).getFirstChild();
+        text.setNodeValue("new description");
+        text.setNodeValue("old description");
+        recorder.stop();
+        
+        assertEquals(Collections.emptyList(), recorder.getDiffList());
+    }
+    
+    @Test
+    public void testModified() throws Exception
+    {
+        XmlDiffRecorder recorder = XmlDiffRecorder.start(doc);
+        Node text = doc.getElementsByTagName("string").item(1).getFirstChild();
+        text.setNodeValue("job2-new");
+        text.setNodeValue("job2-newer");
+        recorder.stop();
+        
+        assertEquals(
+                Arrays.asList("  /view/jobNames/string[2]/text(): \"job2\" -> \"job2-newer\""),
+                recorder.getDiffList()
+        );
+    }
+    
+    @Test
+    public void testTextContentReplaced() throws Exception
+    {
+        XmlDiffRecorder recorder = XmlDiffRecorder.start(doc);
+        doc.getElementsByTagName("description").item(0).setTextContent("new description");
+        recorder.stop();
+        
+        assertEquals(
+                Arrays.asList("  /view/description/text(): \"old description\" -> \"new description\""),
+                recorder.getDiffList()
+        );
+    }
+    
+    @Test
+    public void testAddedAndRemoved() throws Exception
+    {
+        XmlDiffRecorder recorder = XmlDiffRecorder.start(doc);
+        Element regex = doc.createElement("includeRegex");
+        root.appendChild(regex);
+        regex.setTextContent("test-.*");
+        root.removeChild(doc.getElementsByTagName("jobNames").item(0));
+        recorder.stop();
+        
+        assertEquals(
+                Arrays.asList(
+                        "+ /view/includeRegex: \"test-.*\"",
+                        "- /view/jobNames: \"job1job2\""
+                ),
+                recorder.getDiffList()
+        );
+    }
+    
+    @Test
+    public void testAddedAndRemovedAgain() throws Exception
+    {
+        XmlDiffRecorder recorder = XmlDiffRecorder.start(doc);
+        Element regex = doc.createElement("includeRegex");
+        root.appendChild(regex);
+        root.removeChild(regex);
+        recorder.stop();
+        
+        assertEquals(Collections.emptyList(), recorder.getDiffList());
+    }
+    
+    @Test
+    public void testModifiedAndRemoved() throws Exception
+    {
+        XmlDiffRecorder recorder = XmlDiffRecorder.start(doc);
+        Node jobNames = doc.getElementsByTagName("jobNames").item(0);
+        jobNames.getFirstChild().getFirstChild().setNodeValue("job1-new");
+        jobNames.appendChild(doc.createElement("string")).setTextContent("job3");
+        jobNames.removeChild(jobNames.getLastChild());
+        jobNames.removeChild(jobNames.getLastChild());
+        root.removeChild(jobNames);
+        recorder.stop();
+        
+        // changes in the removed node are not listed.
+        assertEquals(
+                Arrays.asList(
+                        "- /view/jobNames/string[2]: \"job2\"",
+                        "- /view/jobNames: \"job1-new\""
+                ),
+                recorder.getDiffList()
+        );
+    }
+    
+    @Test
+    public void testStop() throws Exception
+    {
+        XmlDiffRecorder recorder = XmlDiffRecorder.start(doc);
+        recorder.stop();
+        doc.getElementsByTagName("description").item(0).setTextContent("new description");
+        
+        assertEquals(Collections.emptyList(), recorder.getDiffList());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ *
+ */
+public class XmlFingerprintNoJenkinsTest
+{
+    private Document parse(String xml) throws Exception
+    {
+        return XmlToolkit.getDocumentBuilder().parse(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+    }
+    
+    @Test
+    public void testSame() throws Exception
+    {
+        Document doc = parse("<view a=\"1\" b=\"2\"><description>test</description><jobNames/></view>");
+        
+        assertTrue(XmlFingerprint.isSame(doc, XmlToolkit.copyDocument(doc)));
+        // the order of attributes, indents and comments are ignored.
+        assertTrue(XmlFingerprint.isSame(
+                doc,
+                parse("<view b=\"2\" a=\"1\">\n  <!-- comment -->\n  <description>test</description>\n  <jobNames></jobNames>\n</view>")
+        ));
+        // adjacent texts are joined.
+        assertTrue(XmlFingerprint.isSame(
+                doc,
+                parse("<view a=\"1\" b=\"2\"><description>te<![CDATA[st]]></description><jobNames/></view>")
+        ));
+    }
+    
+    @Test
+    public void testDifferent() throws Exception
+    {
+        Document doc = parse("<view a=\"1\"><description>test</description><jobNames/></view>");
+        
+        assertFalse(XmlFingerprint.isSame(doc, parse("<view a=\"2\"><description>test</description><jobNames/></view>")));
+        assertFalse(XmlFingerprint.isSame(doc, parse("<view><description>test</description><jobNames/></view>")));
+        assertFalse(XmlFingerprint.isSame(doc, parse("<view a=\"1\"><description>test2</description><jobNames/></view>")));
+        assertFalse(XmlFingerprint.isSame(doc, parse("<view a=\"1\"><description>test</description></view>")));
+        assertFalse(XmlFingerprint.isSame(doc, parse("<listView a=\"1\"><description>test</description><jobNames/></listView>")));
+        // texts are not confused with elements.
+        assertFalse(XmlFingerprint.isSame(
+                parse("<view><a>b</a></view>"),
+                parse("<view><ab/></view>")
+        ));
+    }
+    
+    @Test
+    public void testWhitespaceValue() throws Exception
+    {
+        Document doc = parse("<view><description> </description><jobNames/></view>");
+        
+        // whitespaces of values are not ignored.
+        assertFalse(XmlFingerprint.isSame(doc, parse("<view><description>  </description><jobNames/></view>")));
+        assertFalse(XmlFingerprint.isSame(doc, parse("<view><description>\n</description><jobNames/></view>")));
+        assertFalse(XmlFingerprint.isSame(doc, parse("<view><description/><jobNames/></view>")));
+        // whitespaces between elements are still ignored.
+        assertTrue(XmlFingerprint.isSame(doc, parse("<view>\n  <description> </description>\n  <jobNames/>\n</view>")));
+        // empty values are the same.
+        assertTrue(XmlFingerprint.isSame(
+                parse("<view><description/></view>"),
+                parse("<view><description></description></view>")
+        ));
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2013 IKEDA Yasuyuki
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.viewcopy_builder;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.ListView;
+import hudson.model.View;
+import hudson.util.XStream2;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import com.thoughtworks.xstream.io.xml.DomWriter;
+
+/**
+ *
+ */
+public class XmlToolkitJenkinsTest
+{
+    @Rule
+    public MyJenkinsRule j = new MyJenkinsRule();
+    
+    @Test
+    public void testReusedInThread() throws Exception
+    {
+        assertSame(XmlToolkit.getViewXStream(), XmlToolkit.getViewXStream());
+        assertSame(XmlToolkit.getDocumentBuilder(), XmlToolkit.getDocumentBuilder());
+        assertSame(XmlToolkit.getTransformer(false), XmlToolkit.getTransformer(false));
+        assertSame(XmlToolkit.getTransformer(true), XmlToolkit.getTransformer(true));
+        assertNotSame(XmlToolkit.getTransformer(false), XmlToolkit.getTransformer(true));
+    }
+    
+    @Test
+    public void testNotSharedBetweenThreads() throws Exception
+    {
+        final DocumentBuilder builder = XmlToolkit.getDocumentBuilder();
+        final Transformer transformer = XmlToolkit.getTransformer(false);
+        final Object[] result = new Object[3];
+        final Exception[] error = new Exception[1];
+        
+        Thread t = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    result[0] = XmlToolkit.getDocumentBuilder();
+                    result[1] = XmlToolkit.getTransformer(false);
+                    result[2] = XmlToolkit.getViewXStream();
+                }
+                catch(Exception e)
+                {
+                    error[0] = e;
+                }
+            }
+        };
+        t.start();
+        t.join();
+        
+        if(error[0] != null)
+        {
+            throw error[0];
+        }
+        assertNotNull(result[0]);
+        assertNotSame(builder, result[0]);
+        assertNotNull(result[1]);
+        assertNotSame(transformer, result[1]);
+        assertSame(XmlToolkit.getViewXStream(), result[2]);
+    }
+    
+    private String copyWithNewInstances(View view) throws Exception
+    {
+        XStream2 xStream2 = new XStream2();
+        xStream2.omitField(View.class, "owner");
+        xStream2.omitField(View.class, "name");
+        
+        DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        Document doc = builder.newDocument();
+        xStream2.marshal(view, new DomWriter(doc));
+        
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        StringWriter sw = new StringWriter();
+        transformer.transform(new DOMSource(doc), new StreamResult(sw));
+        return sw.toString();
+    }
+    
+    private String copyWithToolkit(View view) throws Exception
+    {
+        Document doc = XmlToolkit.newDocument();
+        XmlToolkit.getViewXStream().marshal(view, new DomWriter(doc));
+        
+        StringWriter sw = new StringWriter();
+        XmlToolkit.getTransformer(true).transform(new DOMSource(doc), new StreamResult(sw));
+        return sw.toString();
+    }
+    
+    private ListView createBenchmarkView() throws Exception
+    {
+        ListView view = new ListView("BenchmarkView");
+        j.jenkins.addView(view);
+        for(int i = 0; i < 20; ++i)
+        {
+            FreeStyleProject p = j.createFreeStyleProject();
+            view.add(p);
+        }
+        return view;
+    }
+    
+    @Test
+    public void testSameAsNewInstances() throws Exception
+    {
+        ListView view = createBenchmarkView();
+        assertEquals(copyWithNewInstances(view), copyWithToolkit(view));
+    }
+    
+    /**
+     * Compares the latency to fetch and serialize a view
+     * with newly created instances and with instances from XmlToolkit.
+     * 
+     * Timings depend on the environment, so this runs only when
+     * the system property viewcopy.benchmark is set to true:
+     * mvn test -Dtest=XmlToolkitJenkinsTest -Dviewcopy.benchmark=true
+     * 
+     * Timings are printed, and this fails only when XmlToolkit
+     * is much slower than new instances, not to fail with noises.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testBenchmark() throws Exception
+    {
+        Assume.assumeTrue(Boolean.getBoolean("viewcopy.benchmark"));
+        
+        ListView view = createBenchmarkView();
+        
+        final int warmup = 50;
+        final int count = 500;
+        for(int i = 0; i < warmup; ++i)
+        {
+            copyWithNewInstances(view);
+            copyWithToolkit(view);
+        }
+        
+        long start = System.nanoTime();
+        for(int i = 0; i < count; ++i)
+        {
+            copyWithNewInstances(view);
+        }
+        long newInstancesTime = System.nanoTime() - start;
+        
+        start = System.nanoTime();
+        for(int i = 0; i < count; ++i)
+        {
+            copyWithToolkit(view);
+        }
+        long toolkitTime = System.nanoTime() - start;
+        
+        String message = String.format(
+                "XmlToolkit benchmark: new instances %d us/copy, toolkit %d us/copy",
+                newInstancesTime / count / 1000,
+                toolkitTime / count / 1000
+        );
+        System.out.println(message);
+        assertTrue(message, toolkitTime <= newInstancesTime * 2);
+    }
+}